@@ -0,0 +1,64 @@
+package cn.hellocsc.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ShareContent 的 JSON 序列化/反序列化（与 PersistentTextStorage 使用相同的 ObjectMapper 配置）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShareContentJsonBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    private int textLength;
+
+    private ObjectMapper objectMapper;
+    private ShareContent content;
+    private byte[] json;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+
+        content = new ShareContent();
+        content.setShareId("1234");
+        content.setFile(false);
+        content.setTextContent("分享内容 text ".repeat(Math.max(1, textLength / 10)));
+        content.setContentType("text/plain");
+        content.setSize(textLength);
+        content.setCreateTime(LocalDateTime.now());
+        content.setViewCount(42);
+        json = objectMapper.writeValueAsBytes(content);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(content);
+    }
+
+    @Benchmark
+    public ShareContent deserialize() throws Exception {
+        return objectMapper.readValue(json, ShareContent.class);
+    }
+}
@@ -0,0 +1,86 @@
+package cn.hellocsc.service;
+
+import cn.hellocsc.metrics.AppMetrics;
+import cn.hellocsc.model.ShareContent;
+import cn.hellocsc.storage.PersistentTextStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.DirectFieldAccessor;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分享码生成在不同占用率下的耗时（4 位数字，共 10000 个可用 ID）
+ * 占用率越高冲突重试越多，接近满时改用 6 位；每次写入后移除，保持占用率不变
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShareIdBenchmark {
+
+    @Param({"0", "2500", "5000", "9000", "9900"})
+    private int filled;
+
+    private PersistentTextStorage storage;
+    private ShareService shareService;
+    private Path dataDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataDir = Files.createTempDirectory("share-id-benchmark");
+        AppMetrics metrics = new AppMetrics(new SimpleMeterRegistry());
+        storage = new PersistentTextStorage(metrics, Clock.systemDefaultZone());
+        DirectFieldAccessor accessor = new DirectFieldAccessor(storage);
+        accessor.setPropertyValue("metadataFilePath", dataDir.resolve("shares_metadata.json").toString());
+        accessor.setPropertyValue("maxEntries", 20000L);
+        storage.afterPropertiesSet();
+
+        for (int i = 0; i < filled; i++) {
+            ShareContent content = new ShareContent();
+            content.setShareId(String.format("%04d", i));
+            content.setTextContent("benchmark");
+            content.setCreateTime(LocalDateTime.now());
+            storage.save(content);
+        }
+
+        // insertShare 只依赖元数据存储
+        shareService = new ShareService(storage, null, null, null, null, metrics, Clock.systemDefaultZone());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        storage.destroy();
+        Files.deleteIfExists(dataDir.resolve("shares_metadata.json"));
+        Files.deleteIfExists(dataDir);
+    }
+
+    @Benchmark
+    public String insertShare() {
+        ShareContent share = new ShareContent();
+        share.setTextContent("benchmark");
+        share.setCreateTime(LocalDateTime.now());
+        shareService.insertShare(share);
+        // 保持占用率不变
+        storage.invalidate(share.getShareId());
+        return share.getShareId();
+    }
+}
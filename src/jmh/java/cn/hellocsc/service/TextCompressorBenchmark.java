@@ -0,0 +1,103 @@
+package cn.hellocsc.service;
+
+import cn.hellocsc.metrics.AppMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.DirectFieldAccessor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文本压缩存储的 CPU 开销：创建分享时的压缩、JSON 接口返回全文时的解压
+ * 节省的内存在 setUp 中输出：String 在堆上的字节数（JDK 紧凑字符串，含中文时每字符 2 字节）与压缩后字节数
+ * 运行：mvn -Pjmh test-compile exec:exec -Djmh.args="TextCompressorBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextCompressorBenchmark {
+
+    private static final String[] WORDS = {
+            "public", "class", "return", "private", "final", "String", "import", "null", "if", "else",
+            "for", "new", "int", "long", "void", "static", "this", "true", "false", "ERROR", "INFO",
+            "2026-10-19", "request", "shareId", "分享", "文件", "下载", "内容", "已过期", "用户", "配置"
+    };
+
+    @Param({"2048", "65536", "1048576"})
+    private int textBytes;
+
+    // code: 代码/日志类文本（含中文）；random: Base64 编码的随机数据，压缩只能去掉 Base64 的冗余
+    @Param({"code", "random"})
+    private String kind;
+
+    private TextCompressor compressor;
+    private String text;
+    private long utf8Length;
+    private byte[] compressed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        compressor = new TextCompressor(new AppMetrics(new SimpleMeterRegistry()));
+        DirectFieldAccessor fields = new DirectFieldAccessor(compressor);
+        fields.setPropertyValue("enabled", true);
+        fields.setPropertyValue("minBytes", 1024L);
+        fields.setPropertyValue("level", 6);
+        fields.setPropertyValue("minSaving", 0.1);
+
+        text = "code".equals(kind) ? codeText(textBytes) : randomText(textBytes);
+        utf8Length = text.getBytes(StandardCharsets.UTF_8).length;
+        compressed = compressor.compress(text, utf8Length);
+        boolean latin1 = text.chars().allMatch(c -> c < 256);
+        long heapBytes = latin1 ? text.length() : text.length() * 2L;
+        System.out.printf("%n# %s %d: UTF-8 %d 字节，String 堆内 %d 字节，压缩后 %s%n", kind, textBytes, utf8Length,
+                heapBytes, compressed != null ? compressed.length + " 字节" : "不保存（节省不足 10%）");
+    }
+
+    @Benchmark
+    public byte[] compress() {
+        return compressor.compress(text, utf8Length);
+    }
+
+    @Benchmark
+    public String decompress() {
+        return compressed != null ? compressor.decompress(compressed) : text;
+    }
+
+    private static String codeText(int bytes) {
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder(bytes);
+        int utf8 = 0;
+        while (utf8 < bytes) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (random.nextInt(8) == 0) {
+                word += random.nextInt(100_000);
+            }
+            builder.append(word).append(random.nextInt(12) == 0 ? '\n' : ' ');
+            utf8 += word.getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+        return builder.toString();
+    }
+
+    private static String randomText(int bytes) {
+        byte[] data = new byte[bytes * 3 / 4];
+        new Random(42).nextBytes(data);
+        return Base64.getEncoder().encodeToString(data);
+    }
+}
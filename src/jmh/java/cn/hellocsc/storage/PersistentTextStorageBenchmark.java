@@ -0,0 +1,116 @@
+package cn.hellocsc.storage;
+
+import cn.hellocsc.metrics.AppMetrics;
+import cn.hellocsc.model.ShareContent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.beans.DirectFieldAccessor;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PersistentTextStorage 读写在竞争下的吞吐量
+ * 纯读、纯写以及读多写少 (7:1) 混合三种场景
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistentTextStorageBenchmark {
+
+    private static final int ENTRIES = 1000;
+
+    private PersistentTextStorage storage;
+    private Path dataDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataDir = Files.createTempDirectory("storage-benchmark");
+        storage = newStorage(dataDir.resolve("shares_metadata.json"), ENTRIES * 2);
+        for (int i = 0; i < ENTRIES; i++) {
+            storage.save(newContent(i, 100));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        storage.destroy();
+        BenchmarkFiles.deleteRecursively(dataDir);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Optional<ShareContent> get() {
+        return storage.get(randomId());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void save() {
+        storage.save(newContent(ThreadLocalRandom.current().nextInt(ENTRIES), 100));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(7)
+    public void mixedGet(Blackhole blackhole) {
+        blackhole.consume(storage.get(randomId()));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void mixedSave() {
+        storage.save(newContent(ThreadLocalRandom.current().nextInt(ENTRIES), 100));
+    }
+
+    private static String randomId() {
+        return String.format("%04d", ThreadLocalRandom.current().nextInt(ENTRIES));
+    }
+
+    static PersistentTextStorage newStorage(Path metadataFile, long maxEntries) {
+        PersistentTextStorage storage = new PersistentTextStorage(new AppMetrics(new SimpleMeterRegistry()),
+                Clock.systemDefaultZone());
+        DirectFieldAccessor accessor = new DirectFieldAccessor(storage);
+        accessor.setPropertyValue("metadataFilePath", metadataFile.toString());
+        accessor.setPropertyValue("maxEntries", maxEntries);
+        storage.afterPropertiesSet();
+        return storage;
+    }
+
+    static ShareContent newContent(int id, int textLength) {
+        ShareContent content = new ShareContent();
+        content.setShareId(String.format("%04d", id));
+        content.setFile(false);
+        content.setTextContent("x".repeat(textLength));
+        content.setContentType("text/plain");
+        content.setSize(textLength);
+        content.setCreateTime(LocalDateTime.now());
+        content.setViewCount(0);
+        content.setRichText(false);
+        return content;
+    }
+}
@@ -0,0 +1,106 @@
+package cn.hellocsc.storage;
+
+import cn.hellocsc.metrics.AppMetrics;
+import cn.hellocsc.model.ShareContent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.beans.DirectFieldAccessor;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 元数据仓库对比：persistent（读写锁 + 快照）与 memory（纯 Caffeine）
+ * 运行：mvn -Pjmh test-compile exec:exec -Djmh.args="ShareRepositoryBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShareRepositoryBenchmark {
+
+    private static final int ENTRIES = 1000;
+
+    @Param({"persistent", "memory"})
+    public String backend;
+
+    private ShareRepository repository;
+    private Path dataDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if ("memory".equals(backend)) {
+            MemoryTextStorage storage = new MemoryTextStorage(new AppMetrics(new SimpleMeterRegistry()),
+                    Clock.systemDefaultZone());
+            new DirectFieldAccessor(storage).setPropertyValue("maxEntries", (long) ENTRIES * 2);
+            storage.afterPropertiesSet();
+            repository = storage;
+        } else {
+            dataDir = Files.createTempDirectory("repository-benchmark");
+            repository = PersistentTextStorageBenchmark.newStorage(dataDir.resolve("shares_metadata.json"), ENTRIES * 2);
+        }
+        for (int i = 0; i < ENTRIES; i++) {
+            repository.save(PersistentTextStorageBenchmark.newContent(i, 100));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (repository instanceof PersistentTextStorage storage) {
+            storage.destroy();
+        }
+        if (dataDir != null) {
+            BenchmarkFiles.deleteRecursively(dataDir);
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Optional<ShareContent> get() {
+        return repository.get(randomId());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void save() {
+        repository.save(PersistentTextStorageBenchmark.newContent(ThreadLocalRandom.current().nextInt(ENTRIES), 100));
+    }
+
+    // 模拟查看分享：读取后更新查看次数再写回
+    @Benchmark
+    @Group("view")
+    @GroupThreads(8)
+    public void view(Blackhole blackhole) {
+        repository.get(randomId()).ifPresent(share -> {
+            share.setViewCount(share.getViewCount() + 1);
+            repository.save(share);
+            blackhole.consume(share);
+        });
+    }
+
+    private static String randomId() {
+        return String.format("%04d", ThreadLocalRandom.current().nextInt(ENTRIES));
+    }
+}
@@ -0,0 +1,69 @@
+package cn.hellocsc.storage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 元数据快照写盘 (flushToDisk) 与启动加载 (loadFromFile) 随记录数增长的耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class SnapshotBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int entries;
+
+    private PersistentTextStorage storage;
+    private Path dataDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataDir = Files.createTempDirectory("snapshot-benchmark");
+        storage = PersistentTextStorageBenchmark.newStorage(dataDir.resolve("shares_metadata.json"), entries);
+        for (int i = 0; i < entries; i++) {
+            storage.save(PersistentTextStorageBenchmark.newContent(i, 200));
+        }
+        storage.flushToDisk();
+    }
+
+    @Setup(Level.Invocation)
+    public void markDirty() {
+        // flushToDisk 只在有变更时写盘
+        storage.save(PersistentTextStorageBenchmark.newContent(0, 200));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        storage.destroy();
+        BenchmarkFiles.deleteRecursively(dataDir);
+    }
+
+    @Benchmark
+    public void flushToDisk() {
+        storage.flushToDisk();
+    }
+
+    @Benchmark
+    public void loadFromFile() {
+        storage.loadFromFile();
+    }
+}
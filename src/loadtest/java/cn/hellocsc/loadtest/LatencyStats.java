@@ -0,0 +1,48 @@
+package cn.hellocsc.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个场景的延迟分布与吞吐统计（HdrHistogram，微秒精度，最长 1 小时）
+ */
+class LatencyStats {
+
+    private final String name;
+    private final Histogram histogram = new ConcurrentHistogram(TimeUnit.HOURS.toMicros(1), 3);
+    private final AtomicLong errors = new AtomicLong(0);
+    private final AtomicLong bytes = new AtomicLong(0);
+
+    LatencyStats(String name) {
+        this.name = name;
+    }
+
+    void record(long startNanos, long transferredBytes) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        histogram.recordValue(Math.min(micros, histogram.getHighestTrackableValue()));
+        bytes.addAndGet(transferredBytes);
+    }
+
+    void error() {
+        errors.incrementAndGet();
+    }
+
+    String report(long elapsedMillis) {
+        long count = histogram.getTotalCount();
+        double seconds = Math.max(elapsedMillis, 1) / 1000.0;
+        return String.format(
+                "%-22s 请求: %7d  错误: %5d  吞吐: %9.1f req/s  %9.2f MB/s  "
+                        + "p50: %8.2fms  p90: %8.2fms  p99: %8.2fms  p99.9: %8.2fms  max: %8.2fms",
+                name, count, errors.get(), count / seconds, bytes.get() / seconds / (1024 * 1024),
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
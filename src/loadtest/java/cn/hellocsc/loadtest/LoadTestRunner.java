@@ -0,0 +1,383 @@
+package cn.hellocsc.loadtest;
+
+import cn.hellocsc.App;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.ByteArrayInputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Stream;
+
+/**
+ * 端到端压测：在随机端口启动应用（临时存储目录与元数据文件），同时运行以下混合负载：
+ * 文本创建/查看、大文件上传、快速下载与慢速下载、view.html 页面访问，
+ * 最后输出各场景延迟分位数 (HdrHistogram)、吞吐量以及服务端线程数和堆内存；
+ * 大文件上传完成后立即凭所有者令牌删除，磁盘占用不随压测时长增长，工作目录在退出时（包括 Ctrl-C）删除
+ *
+ * 运行：mvn -Ploadtest test-compile exec:exec
+ * 参数（系统属性，可通过 -Dloadtest.args="-Dloadtest.duration=120 ..." 传入）：
+ * loadtest.duration 秒数、loadtest.text-clients、loadtest.download-clients、loadtest.slow-readers、
+ * loadtest.slow-reader-delay-ms、loadtest.page-clients、loadtest.upload-mb、loadtest.download-file-mb
+ */
+public class LoadTestRunner {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final int port;
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    // 最近创建的文本分享，供查看场景使用
+    private final AtomicReferenceArray<String> recentTextIds = new AtomicReferenceArray<>(256);
+
+    LoadTestRunner(int port) {
+        this.port = port;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int durationSeconds = Integer.getInteger("loadtest.duration", 60);
+        int textClients = Integer.getInteger("loadtest.text-clients", 32);
+        int downloadClients = Integer.getInteger("loadtest.download-clients", 16);
+        int slowReaders = Integer.getInteger("loadtest.slow-readers", 64);
+        int slowReaderDelayMs = Integer.getInteger("loadtest.slow-reader-delay-ms", 20);
+        int pageClients = Integer.getInteger("loadtest.page-clients", 8);
+        long uploadBytes = Long.getLong("loadtest.upload-mb", 2048) * 1024 * 1024;
+        long downloadFileBytes = Long.getLong("loadtest.download-file-mb", 64) * 1024 * 1024;
+
+        Path workDir = Files.createTempDirectory("flashshare-loadtest");
+        ConfigurableApplicationContext context = startApplication(workDir);
+        Thread cleanup = deleteOnExit(context, workDir);
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            LoadTestRunner runner = new LoadTestRunner(port);
+            System.out.printf("应用已启动，端口: %d，工作目录: %s%n", port, workDir);
+
+            String downloadId = runner.upload(downloadFileBytes, "download-fixture.bin", new LatencyStats("fixture"));
+            runner.createText(new LatencyStats("warmup"));
+
+            LatencyStats textCreate = new LatencyStats("text-create");
+            LatencyStats textView = new LatencyStats("text-view");
+            LatencyStats pageView = new LatencyStats("view.html");
+            LatencyStats fastDownload = new LatencyStats("download-fast");
+            LatencyStats slowDownload = new LatencyStats("download-slow-reader");
+            LatencyStats largeUpload = new LatencyStats("upload-large");
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+            int workers = textClients * 2 + pageClients + downloadClients + slowReaders + 1;
+            ExecutorService executor = Executors.newFixedThreadPool(workers);
+            long startMillis = System.currentTimeMillis();
+
+            try (ServerSampler sampler = new ServerSampler()) {
+                for (int i = 0; i < textClients; i++) {
+                    executor.execute(() -> runner.loop(deadline, () -> runner.createText(textCreate)));
+                    executor.execute(() -> runner.loop(deadline, () -> runner.viewText(textView)));
+                }
+                for (int i = 0; i < pageClients; i++) {
+                    executor.execute(() -> runner.loop(deadline, () -> runner.viewPage(pageView)));
+                }
+                for (int i = 0; i < downloadClients; i++) {
+                    executor.execute(() -> runner.loop(deadline, () -> runner.download(downloadId, fastDownload)));
+                }
+                for (int i = 0; i < slowReaders; i++) {
+                    executor.execute(() -> runner.loop(deadline,
+                            () -> runner.slowDownload(downloadId, slowReaderDelayMs, slowDownload)));
+                }
+                executor.execute(() -> runner.loop(deadline,
+                        () -> runner.delete(runner.uploadShare(uploadBytes, "large-upload.bin", largeUpload))));
+
+                executor.shutdown();
+                // 慢速读取和大文件上传可能在截止时间后仍在进行
+                executor.awaitTermination(durationSeconds + 600L, TimeUnit.SECONDS);
+                long elapsed = System.currentTimeMillis() - startMillis;
+
+                System.out.println();
+                System.out.println("==== 压测结果 (" + elapsed / 1000 + "s) ====");
+                for (LatencyStats stats : List.of(textCreate, textView, pageView, fastDownload, slowDownload, largeUpload)) {
+                    System.out.println(stats.report(elapsed));
+                }
+                System.out.println(sampler.report());
+            }
+        } finally {
+            Runtime.getRuntime().removeShutdownHook(cleanup);
+            context.close();
+            deleteRecursively(workDir);
+        }
+    }
+
+    /**
+     * 进程被中断时同样关闭应用并删除工作目录，正常结束时由调用方移除该钩子后自行清理
+     */
+    static Thread deleteOnExit(ConfigurableApplicationContext context, Path workDir) {
+        Thread hook = new Thread(() -> {
+            context.close();
+            try {
+                deleteRecursively(workDir);
+            } catch (IOException e) {
+                System.err.println("删除工作目录失败: " + workDir);
+            }
+        }, "loadtest-cleanup");
+        Runtime.getRuntime().addShutdownHook(hook);
+        return hook;
+    }
+
+    static ConfigurableApplicationContext startApplication(Path workDir) {
+        return startApplication(workDir, Map.of());
+    }
+
+    static ConfigurableApplicationContext startApplication(Path workDir, Map<String, Object> overrides,
+                                                           ApplicationContextInitializer<?>... initializers) {
+        Map<String, Object> properties = new java.util.HashMap<>(Map.of(
+                "server.port", "0",
+                "storage.path", workDir.resolve("files").toString(),
+                "app.storage.metadata-file", workDir.resolve("data/shares_metadata.json").toString(),
+                "storage.max-size", String.valueOf(Long.MAX_VALUE / 2),
+                // 一致性扫描会在压测期间访问存储目录，关闭
+                "app.integrity.enabled", "false",
+                // 所有压测客户端来自同一 IP，关闭准入控制
+                "app.admission.enabled", "false",
+                "logging.level.cn.hellocsc", "WARN"
+        ));
+        properties.putAll(overrides);
+        // 以命令行参数传入：优先级高于 application.yml，默认属性 (properties()) 会被配置文件覆盖
+        String[] args = properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(App.class)
+                .initializers(initializers)
+                .run(args);
+    }
+
+    private interface Action {
+        void run() throws Exception;
+    }
+
+    private void loop(long deadline, Action action) {
+        while (System.nanoTime() < deadline) {
+            try {
+                action.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // 错误已在各场景中计数
+            }
+        }
+    }
+
+    String createText(LatencyStats stats) throws Exception {
+        String text = "压测文本 " + "x".repeat(ThreadLocalRandom.current().nextInt(100, 4096));
+        String body = MAPPER.writeValueAsString(Map.of("textContent", text, "richText", false));
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/api/share/text"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            stats.error();
+            throw new IOException("创建文本分享失败: " + response.statusCode());
+        }
+        stats.record(start, body.length());
+        String shareId = MAPPER.readTree(response.body()).get("shareId").asText();
+        recentTextIds.set(ThreadLocalRandom.current().nextInt(recentTextIds.length()), shareId);
+        return shareId;
+    }
+
+    void viewText(LatencyStats stats) throws Exception {
+        String shareId = recentTextIds.get(ThreadLocalRandom.current().nextInt(recentTextIds.length()));
+        if (shareId == null) {
+            Thread.sleep(10);
+            return;
+        }
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(uri("/api/share?shareId=" + shareId))
+                .GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            stats.error();
+            return;
+        }
+        stats.record(start, response.body().length);
+    }
+
+    void viewPage(LatencyStats stats) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(uri("/view.html?id=0000"))
+                .GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            stats.error();
+            return;
+        }
+        stats.record(start, response.body().length);
+    }
+
+    void download(String shareId, LatencyStats stats) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<InputStream> response = client.send(HttpRequest.newBuilder(uri("/api/share/download?shareId=" + shareId))
+                .GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream in = response.body()) {
+            if (response.statusCode() != 200) {
+                stats.error();
+                return;
+            }
+            byte[] buffer = new byte[64 * 1024];
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                total += read;
+            }
+            stats.record(start, total);
+        }
+    }
+
+    /**
+     * 慢速客户端：小接收缓冲区，每读一块就停顿，模拟移动网络
+     */
+    void slowDownload(String shareId, int delayMs, LatencyStats stats) throws Exception {
+        long start = System.nanoTime();
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setReceiveBufferSize(16 * 1024);
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /api/share/download?shareId=" + shareId + " HTTP/1.1\r\n"
+                    + "Host: localhost\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[16 * 1024];
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                total += read;
+                Thread.sleep(delayMs);
+            }
+            stats.record(start, total);
+        } catch (IOException e) {
+            stats.error();
+            throw e;
+        }
+    }
+
+    /**
+     * 上传结果，所有者令牌用于删除
+     */
+    record Upload(String shareId, String ownerToken) {
+    }
+
+    String upload(long size, String fileName, LatencyStats stats) throws Exception {
+        return uploadShare(size, fileName, stats).shareId();
+    }
+
+    Upload uploadShare(long size, String fileName, LatencyStats stats) throws Exception {
+        String boundary = "----loadtest" + System.nanoTime();
+        byte[] head = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"isRichText\"\r\n\r\nfalse\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+
+        // 请求体边生成边发送，不在内存中构造完整的大文件
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.fromPublisher(
+                HttpRequest.BodyPublishers.ofInputStream(() -> new SequenceInputStream(
+                        new SequenceInputStream(new ByteArrayInputStream(head), new GeneratedInputStream(size)),
+                        new ByteArrayInputStream(tail))),
+                head.length + size + tail.length);
+
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/api/share/file"))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(body)
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            stats.error();
+            throw new IOException("上传失败: " + response.statusCode() + " " + response.body());
+        }
+        stats.record(start, size);
+        JsonNode json = MAPPER.readTree(response.body());
+        return new Upload(json.get("shareId").asText(), json.get("ownerToken").asText());
+    }
+
+    void delete(Upload upload) throws Exception {
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(uri("/api/share/" + upload.shareId()))
+                .header("X-Owner-Token", upload.ownerToken())
+                .DELETE()
+                .build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IOException("删除分享失败: " + response.statusCode());
+        }
+    }
+
+    URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            List<Path> all = new ArrayList<>(paths.toList());
+            all.sort(Comparator.reverseOrder());
+            for (Path path : all) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * 按需生成指定长度的数据流
+     */
+    static class GeneratedInputStream extends InputStream {
+        private long remaining;
+
+        GeneratedInputStream(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            if (remaining <= 0) {
+                return -1;
+            }
+            remaining--;
+            return (int) (remaining & 0x7F);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = (int) Math.min(len, remaining);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = (byte) ((remaining - i) & 0x7F);
+            }
+            remaining -= n;
+            return n;
+        }
+    }
+}
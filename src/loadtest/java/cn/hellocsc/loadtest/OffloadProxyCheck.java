@@ -0,0 +1,263 @@
+package cn.hellocsc.loadtest;
+
+import cn.hellocsc.storage.ShareRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 下载卸载检查（不依赖 nginx）：以 x-accel-redirect 模式启动应用，前面放一个桩代理，
+ * 行为与 nginx 的 internal location 一致——转发请求，遇到 X-Accel-Redirect 时丢弃应用的响应体，
+ * 改为直接发送 storage.path 下的文件，并去掉该响应头。检查：
+ * 经代理下载的内容与上传一致、应用没有发送文件内容、凭票据下载不读取元数据也不计入查看次数、
+ * 篡改和过期的票据被拒绝
+ *
+ * 运行：mvn -Ploadtest test-compile exec:exec -Dloadtest.main=cn.hellocsc.loadtest.OffloadProxyCheck
+ * 参数（系统属性）：offload.file-kb 上传文件大小、offload.downloads 经代理下载次数
+ *
+ * 对应的 nginx 配置：
+ * <pre>
+ * location /internal-files/ {
+ *     internal;
+ *     alias /path/to/storage/;
+ * }
+ * </pre>
+ */
+public class OffloadProxyCheck {
+
+    private static final String INTERNAL_PREFIX = "/internal-files/";
+    private static final Duration TICKET_TTL = Duration.ofSeconds(60);
+
+    private final Path filesDir;
+    private final int appPort;
+    private final HttpClient upstream = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final AtomicLong offloaded = new AtomicLong();
+    // 应用在 X-Accel-Redirect 响应中发送的字节数，应为 0
+    private final AtomicLong upstreamBodyBytes = new AtomicLong();
+
+    private OffloadProxyCheck(Path filesDir, int appPort) {
+        this.filesDir = filesDir.toAbsolutePath().normalize();
+        this.appPort = appPort;
+    }
+
+    public static void main(String[] args) throws Exception {
+        long fileBytes = Long.getLong("offload.file-kb", 4096) * 1024;
+        int downloads = Integer.getInteger("offload.downloads", 20);
+
+        SimulatedClock clock = new SimulatedClock(Instant.now(), ZoneId.systemDefault());
+        ApplicationContextInitializer<ConfigurableApplicationContext> registerClock =
+                ctx -> ctx.getBeanFactory().registerSingleton("clock", clock);
+
+        Path workDir = Files.createTempDirectory("flashshare-offload");
+        ConfigurableApplicationContext context = LoadTestRunner.startApplication(workDir, Map.of(
+                "app.download.offload.mode", "x-accel-redirect",
+                "app.download.offload.internal-prefix", INTERNAL_PREFIX,
+                "app.download.ticket.ttl", TICKET_TTL.toSeconds() + "s",
+                "app.download.ticket.secret", "offload-check-secret"
+        ), registerClock);
+        ExecutorService proxyExecutor = Executors.newFixedThreadPool(8);
+        HttpServer proxyServer = null;
+        try {
+            int appPort = ((WebServerApplicationContext) context).getWebServer().getPort();
+            OffloadProxyCheck proxy = new OffloadProxyCheck(workDir.resolve("files"), appPort);
+            proxyServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            proxyServer.createContext("/", proxy::handle);
+            proxyServer.setExecutor(proxyExecutor);
+            proxyServer.start();
+            int proxyPort = proxyServer.getAddress().getPort();
+            System.out.printf("应用端口: %d，桩代理端口: %d，工作目录: %s%n", appPort, proxyPort, workDir);
+
+            String shareId = new LoadTestRunner(appPort).upload(fileBytes, "offload.bin", new LatencyStats("upload"));
+            byte[] expected;
+            try (InputStream generated = new LoadTestRunner.GeneratedInputStream(fileBytes)) {
+                expected = generated.readAllBytes();
+            }
+
+            HttpClient client = HttpClient.newBuilder()
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            URI proxyBase = URI.create("http://localhost:" + proxyPort);
+            List<String> violations = new ArrayList<>();
+
+            // 1. 经代理下载：应用校验后跳转到票据地址，文件由代理发送
+            LatencyStats offloadedDownload = new LatencyStats("download-offloaded");
+            long startMillis = System.currentTimeMillis();
+            for (int i = 0; i < downloads; i++) {
+                long start = System.nanoTime();
+                HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(
+                        proxyBase.resolve("/api/share/download?shareId=" + shareId)).GET().build(),
+                        HttpResponse.BodyHandlers.ofByteArray());
+                if (response.statusCode() != 200 || !Arrays.equals(expected, response.body())) {
+                    offloadedDownload.error();
+                    violations.add("经代理下载失败或内容不一致: " + response.statusCode());
+                    continue;
+                }
+                offloadedDownload.record(start, response.body().length);
+                if (response.headers().firstValue("X-Accel-Redirect").isPresent()) {
+                    violations.add("代理没有去掉 X-Accel-Redirect 响应头");
+                }
+                if (!response.headers().firstValue("Content-Disposition").orElse("").contains("offload.bin")) {
+                    violations.add("Content-Disposition 未经代理保留");
+                }
+            }
+            long downloadMillis = System.currentTimeMillis() - startMillis;
+            if (proxy.offloaded.get() != downloads) {
+                violations.add("交给代理发送的次数 " + proxy.offloaded.get() + "，预期 " + downloads);
+            }
+            if (proxy.upstreamBodyBytes.get() != 0) {
+                violations.add("应用在卸载响应中发送了 " + proxy.upstreamBodyBytes.get() + " 字节");
+            }
+
+            // 2. 同一票据重复使用：不读取元数据、不计入查看次数
+            HttpResponse<Void> redirect = HttpClient.newBuilder()
+                    .followRedirects(HttpClient.Redirect.NEVER).build()
+                    .send(HttpRequest.newBuilder(proxyBase.resolve("/api/share/download?shareId=" + shareId))
+                            .GET().build(), HttpResponse.BodyHandlers.discarding());
+            String ticketPath = redirect.headers().firstValue("Location").orElse("");
+            if (redirect.statusCode() != 302 || !ticketPath.startsWith("/api/share/download/t/")) {
+                violations.add("下载请求没有跳转到票据地址: " + redirect.statusCode() + " " + ticketPath);
+            } else {
+                ShareRepository repository = context.getBean(ShareRepository.class);
+                long views = repository.get(shareId).orElseThrow().getViewCount();
+                long metaReads = metadataReads(context.getBean(MeterRegistry.class));
+                for (int i = 0; i < downloads; i++) {
+                    HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(proxyBase.resolve(ticketPath))
+                            .GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+                    if (response.statusCode() != 200 || !Arrays.equals(expected, response.body())) {
+                        violations.add("凭票据下载失败或内容不一致: " + response.statusCode());
+                    }
+                }
+                long reads = metadataReads(context.getBean(MeterRegistry.class)) - metaReads;
+                if (reads != 0) {
+                    violations.add("凭票据下载读取了 " + reads + " 次元数据");
+                }
+                if (repository.get(shareId).orElseThrow().getViewCount() != views) {
+                    violations.add("凭票据下载计入了查看次数");
+                }
+
+                // 3. 篡改的票据
+                String tampered = ticketPath.substring(0, ticketPath.length() - 2)
+                        + (ticketPath.endsWith("A") ? "BB" : "AA");
+                int status = client.send(HttpRequest.newBuilder(proxyBase.resolve(tampered)).GET().build(),
+                        HttpResponse.BodyHandlers.discarding()).statusCode();
+                if (status != 403) {
+                    violations.add("篡改的票据返回 " + status + "，预期 403");
+                }
+
+                // 4. 过期的票据
+                clock.advance(TICKET_TTL.plusSeconds(1));
+                status = client.send(HttpRequest.newBuilder(proxyBase.resolve(ticketPath)).GET().build(),
+                        HttpResponse.BodyHandlers.discarding()).statusCode();
+                if (status != 403) {
+                    violations.add("过期的票据返回 " + status + "，预期 403");
+                }
+            }
+
+            System.out.println();
+            System.out.println("==== 下载卸载检查结果 ====");
+            System.out.println(offloadedDownload.report(Math.max(downloadMillis, 1)));
+            System.out.println("交给代理发送: " + proxy.offloaded.get() + " 次");
+            if (!violations.isEmpty()) {
+                violations.forEach(v -> System.out.println("✗ " + v));
+                throw new IllegalStateException("下载卸载检查发现 " + violations.size() + " 个问题");
+            }
+            System.out.println("✓ 所有检查通过");
+        } finally {
+            if (proxyServer != null) {
+                proxyServer.stop(0);
+            }
+            proxyExecutor.shutdownNow();
+            context.close();
+            LoadTestRunner.deleteRecursively(workDir);
+        }
+    }
+
+    private static long metadataReads(MeterRegistry registry) {
+        Timer timer = registry.find("flashshare.storage.get").timer();
+        return timer != null ? timer.count() : 0;
+    }
+
+    /**
+     * 转发到应用；响应带 X-Accel-Redirect 时按 internal location 发送本地文件
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            HttpResponse<byte[]> response;
+            try {
+                response = upstream.send(HttpRequest.newBuilder(
+                                URI.create("http://localhost:" + appPort + exchange.getRequestURI()))
+                        .method(exchange.getRequestMethod(), HttpRequest.BodyPublishers.noBody())
+                        .build(), HttpResponse.BodyHandlers.ofByteArray());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.sendResponseHeaders(502, -1);
+                return;
+            }
+
+            Optional<String> internal = response.headers().firstValue("X-Accel-Redirect");
+            if (internal.isEmpty()) {
+                copyHeaders(response, exchange, "Location");
+                byte[] body = response.body();
+                exchange.sendResponseHeaders(response.statusCode(), body.length == 0 ? -1 : body.length);
+                if (body.length > 0) {
+                    exchange.getResponseBody().write(body);
+                }
+                return;
+            }
+
+            offloaded.incrementAndGet();
+            upstreamBodyBytes.addAndGet(response.body().length);
+            // 与 nginx 一致：URI 先解码，只允许访问 internal location 映射的目录
+            String path = URI.create(internal.get()).getPath();
+            Path file = path.startsWith(INTERNAL_PREFIX)
+                    ? filesDir.resolve(path.substring(INTERNAL_PREFIX.length())).normalize() : null;
+            if (file == null || !file.startsWith(filesDir) || !Files.isRegularFile(file)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            copyHeaders(response, exchange);
+            exchange.sendResponseHeaders(200, Files.size(file));
+            Files.copy(file, exchange.getResponseBody());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void copyHeaders(HttpResponse<?> response, HttpExchange exchange, String... extra) {
+        List<String> names = new ArrayList<>(List.of("Content-Type", "Content-Disposition", "Cache-Control"));
+        names.addAll(List.of(extra));
+        for (String name : names) {
+            response.headers().firstValue(name).ifPresent(value -> exchange.getResponseHeaders().set(name, value));
+        }
+    }
+}
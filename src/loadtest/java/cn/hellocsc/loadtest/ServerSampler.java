@@ -0,0 +1,50 @@
+package cn.hellocsc.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务端资源采样：应用与压测运行在同一 JVM 中，直接读取线程数与堆内存
+ */
+class ServerSampler implements AutoCloseable {
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "loadtest-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile long peakHeap;
+    private volatile long heapSum;
+    private volatile long samples;
+
+    ServerSampler() {
+        threadBean.resetPeakThreadCount();
+        scheduler.scheduleAtFixedRate(this::sample, 0, 200, TimeUnit.MILLISECONDS);
+    }
+
+    private void sample() {
+        long used = memoryBean.getHeapMemoryUsage().getUsed();
+        peakHeap = Math.max(peakHeap, used);
+        heapSum += used;
+        samples++;
+    }
+
+    String report() {
+        long avgHeap = samples > 0 ? heapSum / samples : 0;
+        return String.format("线程数: 当前 %d / 峰值 %d   堆内存: 平均 %d MB / 峰值 %d MB",
+                threadBean.getThreadCount(), threadBean.getPeakThreadCount(),
+                avgHeap / (1024 * 1024), peakHeap / (1024 * 1024));
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
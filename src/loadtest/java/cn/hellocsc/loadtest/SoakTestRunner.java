@@ -0,0 +1,262 @@
+package cn.hellocsc.loadtest;
+
+import cn.hellocsc.model.ShareContent;
+import cn.hellocsc.model.SharedFile;
+import cn.hellocsc.service.StorageQuotaService;
+import cn.hellocsc.storage.ShareRepository;
+import cn.hellocsc.task.CleanupTask;
+import cn.hellocsc.task.ReclaimExecutor;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * 时间压缩的浸泡测试：注入模拟时钟，在几分钟内跑完 24 小时以上的真实流量
+ * （文本创建/查看、文件上传/下载、定期清理），每个模拟小时检查一次：
+ * 堆内存有上界且不持续增长、元数据快照大小有上界、记录数不超过 max-entries、
+ * 元数据引用的文件都存在、没有超过有效期仍未清理的孤儿文件、磁盘配额与实际文件大小一致
+ *
+ * 运行：mvn -Ploadtest test-compile exec:exec -Dloadtest.main=cn.hellocsc.loadtest.SoakTestRunner
+ * 参数（系统属性）：soak.hours 模拟小时数、soak.step-seconds 每步模拟秒数、soak.texts-per-step、
+ * soak.views-per-step、soak.uploads-per-hour、soak.max-upload-kb、soak.max-heap-mb、
+ * soak.max-heap-growth-mb、soak.max-snapshot-mb
+ * 文件的修改时间不受注入时钟控制，每一步结束时按模拟时间回写新文件的修改时间
+ */
+public class SoakTestRunner {
+
+    private static final Duration SHARE_LIFETIME = Duration.ofHours(24);
+    private static final Duration CLEANUP_INTERVAL = Duration.ofMinutes(5);
+
+    private final SimulatedClock clock;
+    private final LoadTestRunner client;
+    private final ConfigurableApplicationContext context;
+    private final Path filesDir;
+    private final Path metadataFile;
+    private final long maxEntries;
+
+    // 已按模拟时间回写修改时间的文件
+    private final Set<Path> stamped = new HashSet<>();
+    private final List<String> fileShareIds = new ArrayList<>();
+    private final List<String> violations = new ArrayList<>();
+
+    private SoakTestRunner(SimulatedClock clock, ConfigurableApplicationContext context, Path workDir,
+                           long maxEntries) {
+        this.clock = clock;
+        this.context = context;
+        this.client = new LoadTestRunner(((WebServerApplicationContext) context).getWebServer().getPort());
+        this.filesDir = workDir.resolve("files");
+        this.metadataFile = workDir.resolve("data/shares_metadata.json");
+        this.maxEntries = maxEntries;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int hours = Integer.getInteger("soak.hours", 30);
+        int stepSeconds = Integer.getInteger("soak.step-seconds", 60);
+        int textsPerStep = Integer.getInteger("soak.texts-per-step", 4);
+        int viewsPerStep = Integer.getInteger("soak.views-per-step", 8);
+        int uploadsPerHour = Integer.getInteger("soak.uploads-per-hour", 30);
+        int maxUploadKb = Integer.getInteger("soak.max-upload-kb", 512);
+        long maxHeapBytes = Long.getLong("soak.max-heap-mb", 512) * 1024 * 1024;
+        long maxHeapGrowthBytes = Long.getLong("soak.max-heap-growth-mb", 32) * 1024 * 1024;
+        long maxSnapshotBytes = Long.getLong("soak.max-snapshot-mb", 32) * 1024 * 1024;
+        long maxEntries = 5000;
+
+        SimulatedClock clock = new SimulatedClock(Instant.now(), ZoneId.systemDefault());
+        ApplicationContextInitializer<ConfigurableApplicationContext> registerClock =
+                ctx -> ctx.getBeanFactory().registerSingleton("clock", clock);
+
+        Path workDir = Files.createTempDirectory("flashshare-soak");
+        ConfigurableApplicationContext context = LoadTestRunner.startApplication(workDir, Map.of(
+                "app.storage.max-entries", String.valueOf(maxEntries),
+                // 清理由本程序按模拟时间触发
+                "storage.cleanup-interval", String.valueOf(Duration.ofDays(1).toMillis())
+        ), registerClock);
+        try {
+            SoakTestRunner runner = new SoakTestRunner(clock, context, workDir, maxEntries);
+            System.out.printf("应用已启动，工作目录: %s，模拟 %d 小时（每步 %d 秒）%n", workDir, hours, stepSeconds);
+
+            LatencyStats textCreate = new LatencyStats("text-create");
+            LatencyStats textView = new LatencyStats("text-view");
+            LatencyStats upload = new LatencyStats("upload");
+            LatencyStats download = new LatencyStats("download");
+
+            Duration step = Duration.ofSeconds(stepSeconds);
+            long steps = Duration.ofHours(hours).toSeconds() / stepSeconds;
+            double uploadsPerStep = uploadsPerHour * stepSeconds / 3600.0;
+            Duration sinceCleanup = Duration.ZERO;
+            Duration sinceCheck = Duration.ZERO;
+            long baselineHeap = -1;
+            long startMillis = System.currentTimeMillis();
+
+            for (long i = 1; i <= steps; i++) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int t = 0; t < textsPerStep; t++) {
+                    runner.client.createText(textCreate);
+                }
+                for (int v = 0; v < viewsPerStep; v++) {
+                    runner.client.viewText(textView);
+                }
+                if (random.nextDouble() < uploadsPerStep) {
+                    long size = random.nextLong(1024, maxUploadKb * 1024L + 1);
+                    runner.fileShareIds.add(runner.client.upload(size, "soak.bin", upload));
+                }
+                if (!runner.fileShareIds.isEmpty()) {
+                    // 已过期的分享下载失败属于正常情况，只计入错误数
+                    runner.client.download(runner.fileShareIds.get(random.nextInt(runner.fileShareIds.size())), download);
+                }
+
+                clock.advance(step);
+                runner.stampNewFiles();
+
+                sinceCleanup = sinceCleanup.plus(step);
+                if (sinceCleanup.compareTo(CLEANUP_INTERVAL) >= 0) {
+                    context.getBean(CleanupTask.class).cleanupExpiredShares();
+                    // 文件在后台回收，等队列清空后再做配额与孤儿文件检查
+                    if (!context.getBean(ReclaimExecutor.class).awaitIdle(Duration.ofSeconds(30))) {
+                        runner.violations.add("过期文件回收 30 秒内未完成");
+                    }
+                    sinceCleanup = Duration.ZERO;
+                }
+
+                sinceCheck = sinceCheck.plus(step);
+                if (sinceCheck.compareTo(Duration.ofHours(1)) >= 0) {
+                    sinceCheck = Duration.ZERO;
+                    long simulatedHours = i * stepSeconds / 3600;
+                    long heap = runner.check(simulatedHours, maxHeapBytes, maxSnapshotBytes);
+                    // 第一个有效期结束后进入稳态，以此为基线检查堆内存是否持续增长
+                    if (simulatedHours == SHARE_LIFETIME.toHours() + 1) {
+                        baselineHeap = heap;
+                    } else if (baselineHeap >= 0 && heap - baselineHeap > maxHeapGrowthBytes) {
+                        runner.violations.add(String.format("第 %d 小时堆内存较稳态基线增长 %.1f MB",
+                                simulatedHours, (heap - baselineHeap) / 1048576.0));
+                    }
+                }
+            }
+
+            long elapsed = System.currentTimeMillis() - startMillis;
+            System.out.println();
+            System.out.println("==== 浸泡测试结果 (实际耗时 " + elapsed / 1000 + "s，模拟 " + hours + " 小时) ====");
+            for (LatencyStats stats : List.of(textCreate, textView, upload, download)) {
+                System.out.println(stats.report(elapsed));
+            }
+            if (!runner.violations.isEmpty()) {
+                runner.violations.forEach(v -> System.out.println("✗ " + v));
+                throw new IllegalStateException("浸泡测试发现 " + runner.violations.size() + " 个问题");
+            }
+            System.out.println("✓ 所有检查通过");
+        } finally {
+            context.close();
+            LoadTestRunner.deleteRecursively(workDir);
+        }
+    }
+
+    /**
+     * 新写入的文件按当前模拟时间设置修改时间，使按修改时间清理与分享的创建时间一致
+     */
+    private void stampNewFiles() throws IOException {
+        if (!Files.exists(filesDir)) {
+            return;
+        }
+        FileTime now = FileTime.from(clock.instant());
+        Set<Path> present = new HashSet<>();
+        try (Stream<Path> files = Files.list(filesDir)) {
+            for (Path file : files.toList()) {
+                present.add(file);
+                if (stamped.add(file)) {
+                    Files.setLastModifiedTime(file, now);
+                }
+            }
+        }
+        stamped.retainAll(present);
+    }
+
+    /**
+     * 每个模拟小时的检查，返回 GC 后的堆内存用量
+     */
+    private long check(long simulatedHours, long maxHeapBytes, long maxSnapshotBytes) throws IOException {
+        List<ShareContent> shares = context.getBean(ShareRepository.class).listAll();
+        long quotaUsed = context.getBean(StorageQuotaService.class).getUsedBytes();
+
+        Map<String, Long> files = new HashMap<>();
+        Map<String, Instant> modified = new HashMap<>();
+        if (Files.exists(filesDir)) {
+            try (Stream<Path> paths = Files.list(filesDir)) {
+                for (Path path : paths.toList()) {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    String key = path.getFileName().toString();
+                    files.put(key, attributes.size());
+                    modified.put(key, attributes.lastModifiedTime().toInstant());
+                }
+            }
+        }
+        long fileBytes = files.values().stream().mapToLong(Long::longValue).sum();
+
+        // 1. 记录数有上界
+        if (shares.size() > maxEntries) {
+            violations.add(String.format("第 %d 小时元数据记录数 %d 超过上限 %d", simulatedHours, shares.size(), maxEntries));
+        }
+
+        // 2. 元数据引用的文件都存在
+        Set<String> referenced = new HashSet<>();
+        for (ShareContent share : shares) {
+            for (SharedFile file : share.storedFiles()) {
+                referenced.add(file.getFilePath());
+                if (!files.containsKey(file.getFilePath())) {
+                    violations.add(String.format("第 %d 小时分享 %s 引用的文件 %s 已被删除",
+                            simulatedHours, share.getShareId(), file.getFilePath()));
+                }
+            }
+        }
+
+        // 3. 超过有效期和一个清理周期仍未删除的孤儿文件（被淘汰或过期的分享留下的文件）
+        Instant orphanCutOff = clock.instant().minus(SHARE_LIFETIME).minus(CLEANUP_INTERVAL.multipliedBy(2));
+        long staleOrphans = modified.entrySet().stream()
+                .filter(entry -> !referenced.contains(entry.getKey()) && entry.getValue().isBefore(orphanCutOff))
+                .count();
+        if (staleOrphans > 0) {
+            violations.add(String.format("第 %d 小时有 %d 个过期文件未被清理", simulatedHours, staleOrphans));
+        }
+
+        // 4. 配额与实际文件大小一致
+        if (quotaUsed != fileBytes) {
+            violations.add(String.format("第 %d 小时配额用量 %d 与实际文件大小 %d 不一致",
+                    simulatedHours, quotaUsed, fileBytes));
+        }
+
+        // 5. 快照大小有上界（快照每 30 秒实际时间写一次）
+        long snapshotBytes = Files.exists(metadataFile) ? Files.size(metadataFile) : 0;
+        if (snapshotBytes > maxSnapshotBytes) {
+            violations.add(String.format("第 %d 小时元数据快照 %d 字节超过上限", simulatedHours, snapshotBytes));
+        }
+
+        // 6. 堆内存有上界
+        System.gc();
+        long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        if (heap > maxHeapBytes) {
+            violations.add(String.format("第 %d 小时堆内存 %.1f MB 超过上限", simulatedHours, heap / 1048576.0));
+        }
+
+        System.out.printf("[%3dh] 分享: %5d  文件: %5d (%8.1f MB)  配额: %8.1f MB  快照: %7.1f KB  堆: %6.1f MB  问题: %d%n",
+                simulatedHours, shares.size(), files.size(), fileBytes / 1048576.0, quotaUsed / 1048576.0,
+                snapshotBytes / 1024.0, heap / 1048576.0, violations.size());
+        return heap;
+    }
+}
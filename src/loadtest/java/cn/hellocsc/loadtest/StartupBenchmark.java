@@ -0,0 +1,203 @@
+package cn.hellocsc.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动性能对比：分别以普通 jar、AppCDS、AOT + AppCDS 和原生镜像启动应用，
+ * 测量从启动进程到第一个请求得到响应的时间 (time-to-first-request) 以及此时的常驻内存 (RSS)
+ *
+ * 准备：
+ *   普通 jar / AppCDS：mvn package
+ *   AOT + AppCDS：mvn -Pnative package（jar 中包含 AOT 生成的代码）
+ *   原生镜像：mvn -Pnative native:compile（需要 GraalVM）
+ * 运行：mvn -Ploadtest test-compile exec:exec -Dloadtest.main=cn.hellocsc.loadtest.StartupBenchmark
+ * 参数（系统属性，可通过 -Dloadtest.args="-Dstartup.runs=10 ..." 传入）：
+ * startup.jar、startup.native、startup.runs、startup.variants（jar,cds,aot-cds,native）
+ *
+ * RSS 读取 /proc/&lt;pid&gt;/status，仅支持 Linux
+ */
+public class StartupBenchmark {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(200))
+            .build();
+
+    private final String java = ProcessHandle.current().info().command().orElse("java");
+    private final Path jar;
+    private final Path workDir;
+
+    private StartupBenchmark(Path jar, Path workDir) {
+        this.jar = jar;
+        this.workDir = workDir;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Paths.get(System.getProperty("startup.jar", "target/flashshare-1.0.jar")).toAbsolutePath();
+        Path nativeBinary = Paths.get(System.getProperty("startup.native", "target/flashshare")).toAbsolutePath();
+        int runs = Integer.getInteger("startup.runs", 5);
+        List<String> variants = Arrays.asList(System.getProperty("startup.variants", "jar,cds,aot-cds,native").split(","));
+
+        Path workDir = Files.createTempDirectory("startup-benchmark");
+        StartupBenchmark benchmark = new StartupBenchmark(jar, workDir);
+        System.out.printf("%-10s %8s %12s %12s %12s%n", "variant", "runs", "ttfr-p50", "ttfr-max", "rss-p50");
+        try {
+            for (String variant : variants) {
+                List<String> command = switch (variant.trim()) {
+                    case "jar" -> Files.exists(jar) ? List.of(benchmark.java, "-jar", jar.toString()) : null;
+                    case "cds" -> Files.exists(jar) ? benchmark.prepareCds(false) : null;
+                    case "aot-cds" -> Files.exists(jar) ? benchmark.prepareCds(true) : null;
+                    case "native" -> Files.isExecutable(nativeBinary) ? List.of(nativeBinary.toString()) : null;
+                    default -> throw new IllegalArgumentException("未知的启动方式: " + variant);
+                };
+                if (command == null) {
+                    System.out.printf("%-10s 跳过（未找到构建产物）%n", variant);
+                    continue;
+                }
+                benchmark.run(variant.trim(), command, runs);
+            }
+        } finally {
+            LoadTestRunner.deleteRecursively(workDir);
+        }
+    }
+
+    private void run(String variant, List<String> command, int runs) throws Exception {
+        long[] ttfrMillis = new long[runs];
+        long[] rssKb = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            Sample sample = measure(command, workDir.resolve(variant + "-" + i));
+            ttfrMillis[i] = sample.ttfrMillis;
+            rssKb[i] = sample.rssKb;
+        }
+        Arrays.sort(ttfrMillis);
+        Arrays.sort(rssKb);
+        System.out.printf("%-10s %8d %10d ms %10d ms %9d MB%n",
+                variant, runs, ttfrMillis[runs / 2], ttfrMillis[runs - 1], rssKb[runs / 2] / 1024);
+    }
+
+    /**
+     * AppCDS：先从可执行 jar 解压出类路径布局，再做一次训练运行（刷新上下文后立即退出）生成归档
+     */
+    private List<String> prepareCds(boolean aot) throws Exception {
+        Path extracted = workDir.resolve("extracted");
+        if (!Files.exists(extracted)) {
+            exec(List.of(java, "-Djarmode=tools", "-jar", jar.toString(), "extract", "--destination", extracted.toString()),
+                    workDir.resolve("extract.log"));
+        }
+        Path applicationJar = extracted.resolve(jar.getFileName());
+        Path archive = workDir.resolve(aot ? "application-aot.jsa" : "application.jsa");
+
+        List<String> training = new ArrayList<>(List.of(java, "-XX:ArchiveClassesAtExit=" + archive,
+                "-Dspring.context.exit=onRefresh"));
+        if (aot) {
+            training.add("-Dspring.aot.enabled=true");
+        }
+        training.addAll(List.of("-jar", applicationJar.toString()));
+        training.addAll(applicationArgs(freePort(), workDir.resolve("training")));
+        exec(training, workDir.resolve(archive.getFileName() + ".log"));
+
+        List<String> command = new ArrayList<>(List.of(java, "-XX:SharedArchiveFile=" + archive));
+        if (aot) {
+            command.add("-Dspring.aot.enabled=true");
+        }
+        command.addAll(List.of("-jar", applicationJar.toString()));
+        return command;
+    }
+
+    private Sample measure(List<String> command, Path runDir) throws Exception {
+        Files.createDirectories(runDir);
+        int port = freePort();
+        List<String> fullCommand = new ArrayList<>(command);
+        fullCommand.addAll(applicationArgs(port, runDir));
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/api/share?shareId=0000"))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(fullCommand)
+                .redirectErrorStream(true)
+                .redirectOutput(runDir.resolve("app.log").toFile())
+                .start();
+        try {
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("应用启动失败，见日志: " + runDir.resolve("app.log"));
+                }
+                if (System.nanoTime() - start > STARTUP_TIMEOUT.toNanos()) {
+                    throw new IllegalStateException("应用启动超时: " + String.join(" ", command));
+                }
+                try {
+                    // 任意 HTTP 响应（包括 404）都说明请求已经由应用处理
+                    client.send(request, HttpResponse.BodyHandlers.discarding());
+                    break;
+                } catch (IOException e) {
+                    Thread.sleep(5);
+                }
+            }
+            long ttfrMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new Sample(ttfrMillis, readRssKb(process.pid()));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static List<String> applicationArgs(int port, Path runDir) {
+        return List.of(
+                "--server.port=" + port,
+                "--storage.path=" + runDir.resolve("files"),
+                "--app.storage.metadata-file=" + runDir.resolve("data/shares_metadata.json"),
+                "--app.integrity.enabled=false",
+                "--logging.level.root=WARN");
+    }
+
+    private static void exec(List<String> command, Path log) throws Exception {
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        if (!process.waitFor(5, TimeUnit.MINUTES) || process.exitValue() != 0) {
+            process.destroyForcibly();
+            throw new IllegalStateException("命令执行失败，见日志: " + log);
+        }
+    }
+
+    private static long readRssKb(long pid) throws IOException {
+        Path status = Paths.get("/proc", String.valueOf(pid), "status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("[^0-9]", ""));
+            }
+        }
+        return -1;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private record Sample(long ttfrMillis, long rssKb) {
+    }
+}
@@ -0,0 +1,159 @@
+package cn.hellocsc.loadtest;
+
+import cn.hellocsc.config.VirtualThreads;
+import cn.hellocsc.metrics.AppMetrics;
+import cn.hellocsc.model.ShareContent;
+import cn.hellocsc.storage.PersistentTextStorage;
+import cn.hellocsc.storage.ShareRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 线程模型对比测试：256 平台线程池 vs 每任务一个虚拟线程
+ * 模拟高连接数下的阻塞请求（元数据读写 + 文件读取 + 网络等待），比较吞吐量、线程数和堆内存
+ * 使用临时目录中独立的元数据仓库，不接触运行中的数据；虚拟线程部分需要 JDK 21
+ *
+ * 运行：mvn -Ploadtest test-compile exec:exec -Dloadtest.main=cn.hellocsc.loadtest.ThreadModelBenchmark
+ * 参数（系统属性）：thread-model.connections 连接数列表（逗号分隔）
+ */
+public class ThreadModelBenchmark {
+
+    // 与 application.yml 中 undertow 工作线程数一致
+    private static final int PLATFORM_POOL_SIZE = 256;
+    // 模拟慢速客户端的网络等待
+    private static final long NETWORK_WAIT_MS = 50;
+    private static final int SHARES = 100;
+
+    private final ShareRepository shareRepository;
+    private final Path sample;
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+
+    private ThreadModelBenchmark(ShareRepository shareRepository, Path sample) {
+        this.shareRepository = shareRepository;
+        this.sample = sample;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] connectionCounts = Arrays.stream(System.getProperty("thread-model.connections", "1000,5000,10000")
+                .split(",")).mapToInt(value -> Integer.parseInt(value.trim())).toArray();
+
+        Path workDir = Files.createTempDirectory("thread-model-benchmark");
+        PersistentTextStorage storage = new PersistentTextStorage(new AppMetrics(new SimpleMeterRegistry()),
+                Clock.systemDefaultZone());
+        DirectFieldAccessor accessor = new DirectFieldAccessor(storage);
+        accessor.setPropertyValue("metadataFilePath", workDir.resolve("shares_metadata.json").toString());
+        storage.afterPropertiesSet();
+        try {
+            Path sample = Files.write(workDir.resolve("sample.bin"), new byte[256 * 1024]);
+            for (int i = 1; i <= SHARES; i++) {
+                storage.save(createTestContent(i));
+            }
+            ThreadModelBenchmark benchmark = new ThreadModelBenchmark(storage, sample);
+
+            System.out.printf("%-16s %8s %10s %10s %12s %14s%n",
+                    "model", "conns", "time-ms", "req/s", "peak-threads", "peak-heap-KB");
+            for (int connections : connectionCounts) {
+                ExecutorService platform = Executors.newFixedThreadPool(PLATFORM_POOL_SIZE);
+                try {
+                    benchmark.runScenario("platform-" + PLATFORM_POOL_SIZE, platform, connections);
+                } finally {
+                    platform.shutdown();
+                    platform.awaitTermination(30, TimeUnit.SECONDS);
+                }
+
+                if (VirtualThreads.isAvailable()) {
+                    benchmark.runScenario("virtual", new VirtualThreadTaskExecutor("benchmark-vt-"), connections);
+                } else {
+                    System.out.printf("%-16s %8d 跳过（需要 JDK 21）%n", "virtual", connections);
+                }
+            }
+        } finally {
+            storage.destroy();
+            LoadTestRunner.deleteRecursively(workDir);
+        }
+    }
+
+    private void runScenario(String name, Executor executor, int connections) throws InterruptedException {
+        System.gc();
+        threadBean.resetPeakThreadCount();
+        long heapBefore = memoryBean.getHeapMemoryUsage().getUsed();
+        AtomicLong peakHeap = new AtomicLong(heapBefore);
+        CountDownLatch latch = new CountDownLatch(connections);
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            int id = (i % SHARES) + 1;
+            executor.execute(() -> {
+                try {
+                    simulateRequest(id);
+                    peakHeap.accumulateAndGet(memoryBean.getHeapMemoryUsage().getUsed(), Math::max);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await(10, TimeUnit.MINUTES);
+        long durationMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+
+        System.out.printf("%-16s %8d %10d %10d %12d %14d%n", name, connections, durationMs,
+                connections * 1000L / durationMs, threadBean.getPeakThreadCount(),
+                (peakHeap.get() - heapBefore) / 1024);
+    }
+
+    private void simulateRequest(int id) {
+        String shareId = String.format("%04d", id);
+        shareRepository.get(shareId).ifPresent(shareRepository::save);
+
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        try (FileChannel channel = FileChannel.open(sample, StandardOpenOption.READ)) {
+            long position = 0;
+            int read;
+            while ((read = channel.read(buffer, position)) > 0) {
+                position += read;
+                buffer.clear();
+                // 每个分块之间等待一次，模拟客户端接收速度
+                if (position % (64 * 1024) == 0) {
+                    Thread.sleep(NETWORK_WAIT_MS / 4);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("读取测试文件失败: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ShareContent createTestContent(int id) {
+        ShareContent content = new ShareContent();
+        content.setShareId(String.format("%04d", id));
+        content.setFile(false);
+        content.setTextContent("线程模型测试内容 " + id);
+        content.setContentType("text/plain");
+        content.setSize(100);
+        content.setCreateTime(LocalDateTime.now());
+        content.setViewCount(0);
+        content.setRichText(false);
+        return content;
+    }
+}
@@ -0,0 +1,34 @@
+package cn.hellocsc.config;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 时钟配置
+ * 过期判断、创建时间和清理截止时间统一从注入的 Clock 读取，
+ * 浸泡测试可以在启动前注册自己的 Clock（加速时间）替换系统时钟
+ */
+@Configuration(proxyBeanMethods = false)
+public class ClockConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public Clock clock() {
+        return Clock.systemDefaultZone();
+    }
+
+    /**
+     * Caffeine 过期计时：系统时钟使用单调的 System.nanoTime，其他时钟跟随该时钟的毫秒数
+     */
+    public static Ticker ticker(Clock clock) {
+        if (clock.equals(Clock.systemDefaultZone()) || clock.equals(Clock.systemUTC())) {
+            return Ticker.systemTicker();
+        }
+        return () -> TimeUnit.MILLISECONDS.toNanos(clock.millis());
+    }
+}
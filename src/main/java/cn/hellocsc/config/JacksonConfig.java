@@ -0,0 +1,46 @@
+package cn.hellocsc.config;
+
+import cn.hellocsc.model.ShareContent;
+import cn.hellocsc.model.SharedFile;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 接口 JSON 配置
+ * 删除令牌的哈希和压缩后的文本需要随元数据持久化（存储层使用各自的 ObjectMapper），
+ * 但不能出现在接口响应中，也不能由请求体写入，只在 Spring MVC 使用的 ObjectMapper 上忽略；
+ * 大小、字符数和预览图由服务端计算，响应中返回，但不接受请求体写入
+ */
+@Configuration(proxyBeanMethods = false)
+// 原生镜像中 Jackson 需要通过反射读取混入类上的注解
+@RegisterReflectionForBinding(JacksonConfig.ShareContentApiMixin.class)
+public class JacksonConfig {
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer shareContentApiCustomizer() {
+        return builder -> builder.mixIn(ShareContent.class, ShareContentApiMixin.class);
+    }
+
+    abstract static class ShareContentApiMixin {
+
+        @JsonIgnore
+        abstract String getOwnerTokenHash();
+
+        @JsonIgnore
+        abstract byte[] getTextGzip();
+
+        @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+        abstract long getSize();
+
+        @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+        abstract long getCharCount();
+
+        // 预览图的存储 key 由预览生成写入，客户端提交的值会被当作存储路径读取和删除
+        @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+        abstract SharedFile getPreview();
+    }
+}
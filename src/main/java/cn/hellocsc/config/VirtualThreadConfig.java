@@ -0,0 +1,28 @@
+package cn.hellocsc.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.embedded.undertow.UndertowDeploymentInfoCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+/**
+ * 虚拟线程配置
+ * Spring Boot 只为 Tomcat/Jetty 自动启用虚拟线程，Undertow 需要手动把 Servlet 请求分派到虚拟线程；
+ * 仅在 JDK 21+ 且 spring.threads.virtual.enabled=true 时生效，否则仍使用 Undertow 工作线程池
+ */
+@Slf4j
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    @Bean
+    public UndertowDeploymentInfoCustomizer virtualThreadDeploymentInfoCustomizer() {
+        return deploymentInfo -> {
+            deploymentInfo.setExecutor(new VirtualThreadTaskExecutor("undertow-vt-"));
+            log.info("Undertow 请求处理已切换到虚拟线程");
+        };
+    }
+}
@@ -0,0 +1,30 @@
+package cn.hellocsc.config;
+
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程工具
+ * 以 JDK 17 编译时也能使用：只有运行在 JDK 21+ 且开启 spring.threads.virtual.enabled 时才创建虚拟线程
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isAvailable() {
+        return JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE);
+    }
+
+    /**
+     * 开启且可用时返回虚拟线程工厂，否则返回普通平台线程工厂
+     */
+    public static ThreadFactory threadFactory(boolean enabled, String name) {
+        if (enabled && isAvailable()) {
+            return new VirtualThreadTaskExecutor(name + "-").getVirtualThreadFactory();
+        }
+        return r -> new Thread(r, name);
+    }
+}
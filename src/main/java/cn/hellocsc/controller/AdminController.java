@@ -0,0 +1,104 @@
+package cn.hellocsc.controller;
+
+import cn.hellocsc.metrics.RequestTrace;
+import cn.hellocsc.metrics.SlowRequestLog;
+import cn.hellocsc.service.ShareService;
+import cn.hellocsc.service.StorageQuotaService;
+import cn.hellocsc.storage.HotFileTier;
+import cn.hellocsc.storage.SmallFileCache;
+import cn.hellocsc.task.IntegrityScanner;
+import cn.hellocsc.task.ReclaimExecutor;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private final StorageQuotaService storageQuotaService;
+    private final SmallFileCache smallFileCache;
+    private final HotFileTier hotFileTier;
+    private final IntegrityScanner integrityScanner;
+    private final ReclaimExecutor reclaimExecutor;
+    private final ShareService shareService;
+    private final SlowRequestLog slowRequestLog;
+
+    // 磁盘用量与剩余空间
+    @GetMapping("/storage")
+    public Map<String, Object> storageUsage() {
+        long used = storageQuotaService.getUsedBytes();
+        long max = storageQuotaService.getMaxSize();
+        return Map.of(
+                "usedBytes", used,
+                "maxBytes", max,
+                "headroomBytes", storageQuotaService.getHeadroom(),
+                "usagePercent", max > 0 ? used * 100.0 / max : 0.0,
+                "evictOldest", storageQuotaService.isEvictOldest()
+        );
+    }
+
+    // 小文件内存层状态
+    @GetMapping("/small-files")
+    public Map<String, Object> smallFileCache() {
+        CacheStats stats = smallFileCache.stats();
+        return Map.of(
+                "entries", smallFileCache.getEntryCount(),
+                "usedBytes", smallFileCache.getUsedBytes(),
+                "maxBytes", smallFileCache.getMaxBytes(),
+                "hitCount", stats.hitCount(),
+                "missCount", stats.missCount(),
+                "hitRate", stats.hitRate(),
+                "evictionCount", stats.evictionCount()
+        );
+    }
+
+    // 当前热点文件集合与热点层命中率
+    @GetMapping("/hot-files")
+    public Map<String, Object> hotFiles() {
+        long requests = hotFileTier.getRequestCount();
+        long hits = hotFileTier.getHitCount();
+        return Map.of(
+                "hotFiles", hotFileTier.snapshot(),
+                "mappedBytes", hotFileTier.getMappedBytes(),
+                "maxBytes", hotFileTier.getMaxBytes(),
+                "requestCount", requests,
+                "hitCount", hits,
+                "hitRate", requests > 0 ? (double) hits / requests : 0.0
+        );
+    }
+
+    // 数据一致性扫描进度与结果
+    @GetMapping("/integrity")
+    public Map<String, Object> integrity() {
+        return integrityScanner.status();
+    }
+
+    // 过期文件回收积压、预算与退避状态
+    @GetMapping("/cleanup")
+    public Map<String, Object> cleanup() {
+        return reclaimExecutor.status();
+    }
+
+    // 文本压缩存储节省的空间（压缩/解压的 CPU 耗时见 flashshare.text.compress / decompress 指标）
+    @GetMapping("/text-compression")
+    public Map<String, Object> textCompression() {
+        return shareService.textCompressionStats();
+    }
+
+    // 最近的慢请求及其阶段耗时（需开启 app.tracing.enabled）
+    @GetMapping("/slow-requests")
+    public Map<String, Object> slowRequests() {
+        return Map.of(
+                "enabled", RequestTrace.isEnabled(),
+                "captured", slowRequestLog.getCaptured(),
+                "capacity", slowRequestLog.getCapacity(),
+                "requests", slowRequestLog.recent()
+        );
+    }
+}
@@ -0,0 +1,212 @@
+package cn.hellocsc.controller;
+
+import cn.hellocsc.service.BandwidthScheduler;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.LongConsumer;
+
+/**
+ * 非阻塞下载
+ * 只在 Socket 可写时写出一个分块，写不动时立即让出线程，
+ * 并发下载数受连接数限制而不是工作线程数；磁盘文件的分块在工作线程上读取，不占用 IO 线程
+ * 分块需要先读入堆内数组，无法使用 transferTo 零拷贝，因此默认关闭
+ */
+@Slf4j
+class AsyncFileTransfer implements WriteListener, AsyncListener {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final AsyncContext asyncContext;
+    private final ServletOutputStream output;
+    private final String shareId;
+
+    // 数据源：磁盘文件或内存缓冲区，二选一
+    private final FileChannel fileChannel;
+    private final ByteBuffer memory;
+
+    private final long size;
+    private final byte[] chunk;
+    // 带宽调度，未开启限速时不会产生等待
+    private final BandwidthScheduler.Flow flow;
+    // 传输结束时回调已传输的字节数（用于指标统计）
+    private final LongConsumer onFinish;
+    private long position = 0;
+    // 已预约带宽但尚未发送的分块长度
+    private int reservedLength = 0;
+    private volatile boolean finished = false;
+    private boolean released = false;
+
+    private AsyncFileTransfer(AsyncContext asyncContext, String shareId, FileChannel fileChannel, ByteBuffer memory,
+                              long size, BandwidthScheduler.Flow flow, LongConsumer onFinish) throws IOException {
+        this.asyncContext = asyncContext;
+        this.output = asyncContext.getResponse().getOutputStream();
+        this.shareId = shareId;
+        this.fileChannel = fileChannel;
+        this.memory = memory;
+        this.size = size;
+        this.chunk = new byte[(int) Math.min(CHUNK_SIZE, Math.max(size, 1))];
+        this.flow = flow;
+        this.onFinish = onFinish;
+    }
+
+    static void start(AsyncContext asyncContext, String shareId, FileChannel fileChannel, long size,
+                      BandwidthScheduler.Flow flow, LongConsumer onFinish) throws IOException {
+        start(new AsyncFileTransfer(asyncContext, shareId, fileChannel, null, size, flow, onFinish));
+    }
+
+    static void start(AsyncContext asyncContext, String shareId, ByteBuffer memory,
+                      BandwidthScheduler.Flow flow, LongConsumer onFinish) throws IOException {
+        start(new AsyncFileTransfer(asyncContext, shareId, null, memory, memory.remaining(), flow, onFinish));
+    }
+
+    private static void start(AsyncFileTransfer transfer) {
+        // 慢速客户端下载大文件可能持续很久，不使用异步超时，由服务器空闲超时兜底
+        transfer.asyncContext.setTimeout(0);
+        transfer.asyncContext.addListener(transfer);
+        transfer.output.setWriteListener(transfer);
+    }
+
+    @Override
+    public void onWritePossible() throws IOException {
+        if (fileChannel == null) {
+            writeChunks();
+            return;
+        }
+        // 回调运行在 IO 线程上，磁盘读取可能阻塞，交给工作线程；
+        // 工作线程在 isReady() 返回 false 后立即退出，容器下次回调时再继续，同一时刻只有一个线程在写
+        dispatch();
+    }
+
+    private void writeChunks() throws IOException {
+        while (output.isReady()) {
+            if (position >= size) {
+                log.info("文件下载成功 (Async) - ID: {}", shareId);
+                finish();
+                return;
+            }
+
+            int length = reservedLength > 0
+                    ? reservedLength : (int) flow.chunk(Math.min(chunk.length, size - position));
+            if (reservedLength == 0) {
+                long waitNanos = flow.reserve(length);
+                if (waitNanos > 0) {
+                    // 超出带宽配额：暂停写出，到时间后再由容器线程继续
+                    reservedLength = length;
+                    flow.resumeAfter(this::resume, waitNanos);
+                    return;
+                }
+            }
+            reservedLength = 0;
+
+            int read = readChunk(length);
+            if (read <= 0) {
+                // 文件在传输过程中被截断
+                log.warn("下载提前结束 (Async) - ID: {}, 已传输: {}/{}", shareId, position, size);
+                finish();
+                return;
+            }
+            output.write(chunk, 0, read);
+            position += read;
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        String msg = t.getMessage();
+        if (msg != null && (msg.contains("Broken pipe") || msg.contains("Connection reset"))
+                || t instanceof java.nio.channels.ClosedChannelException) {
+            log.info("下载中断（客户端断开） - ID: {}", shareId);
+        } else {
+            log.error("下载失败 (Async) - ID: {}, 错误: {}", shareId, msg);
+        }
+        finish();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        release();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        log.warn("下载超时 (Async) - ID: {}", shareId);
+        finish();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        release();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+        // ignore
+    }
+
+    private void resume() {
+        if (finished) {
+            return;
+        }
+        dispatch();
+    }
+
+    private void dispatch() {
+        asyncContext.start(() -> {
+            try {
+                writeChunks();
+            } catch (IOException | RuntimeException e) {
+                onError(e);
+            }
+        });
+    }
+
+    private int readChunk(int length) throws IOException {
+        if (memory != null) {
+            memory.get(chunk, 0, length);
+            return length;
+        }
+        ByteBuffer target = ByteBuffer.wrap(chunk, 0, length);
+        int total = 0;
+        while (target.hasRemaining()) {
+            int read = fileChannel.read(target, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        release();
+        asyncContext.complete();
+    }
+
+    private synchronized void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        flow.close();
+        if (fileChannel != null) {
+            try {
+                fileChannel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+        onFinish.accept(position);
+    }
+}
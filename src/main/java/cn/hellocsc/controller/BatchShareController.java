@@ -0,0 +1,179 @@
+package cn.hellocsc.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import cn.hellocsc.exception.PayloadTooLargeException;
+import cn.hellocsc.filter.AdmissionControlFilter;
+import cn.hellocsc.model.ShareContent;
+import cn.hellocsc.service.ShareService;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量接口：请求体按流解析（超过条数或字节上限立即拒绝），结果逐条写出，不在内存中拼出完整响应；
+ * 解析后按条目数扣除限流预算，批量请求不能绕过单条请求的频率限制
+ */
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/share/batch")
+public class BatchShareController implements InitializingBean {
+
+    // 批量查询时每次访问仓库的 ID 数
+    private static final int LOOKUP_CHUNK_SIZE = 500;
+
+    private final ShareService shareService;
+    private final ObjectMapper objectMapper;
+    private final AdmissionControlFilter admissionControl;
+
+    // 单个批量请求的最大条数
+    @Value("${app.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    // 单个批量请求体的最大字节数
+    @Value("${app.batch.max-bytes:10485760}")
+    private long maxBatchBytes;
+
+    // 解析请求体用：与 objectMapper 配置相同，另外限制文档长度
+    private ObjectMapper requestMapper;
+
+    @Override
+    public void afterPropertiesSet() {
+        // 上限超过准入预算时，接近上限的批量请求永远拿不到足够的令牌
+        for (String budget : new String[]{AdmissionControlFilter.CREATE, AdmissionControlFilter.LOOKUP}) {
+            long allowed = admissionControl.maxBatchItems(budget);
+            if (maxBatchSize > allowed) {
+                throw new IllegalStateException(String.format(
+                        "app.batch.max-size (%d) 超过 %s 准入预算单次允许的 %d 条，"
+                                + "请调大 app.admission.%s.burst 或 app.admission.batch-items-per-token",
+                        maxBatchSize, budget, allowed, budget));
+            }
+        }
+        JsonFactory factory = objectMapper.getFactory().rebuild()
+                .streamReadConstraints(StreamReadConstraints.builder().maxDocumentLength(maxBatchBytes).build())
+                .build();
+        requestMapper = objectMapper.copyWith(factory);
+    }
+
+    // 批量创建文本分享：请求体为 ShareContent 数组（只需 textContent 和 richText），按请求顺序返回结果
+    @PostMapping(value = "/text", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void createTextShares(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        List<ShareContent> requests = readArray(request, parser -> parser.readValueAs(ShareContent.class));
+        admissionControl.charge(request, AdmissionControlFilter.CREATE, requests.size());
+        List<ShareContent> saved = shareService.createTextShares(requests);
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator generator = objectMapper.createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            for (ShareContent share : saved) {
+                generator.writeStartObject();
+                generator.writeStringField("shareId", share.getShareId());
+                generator.writeStringField("url", "/view.html?id=" + share.getShareId());
+                generator.writeNumberField("expiresIn", 86400);
+                generator.writeStringField("ownerToken", share.getOwnerToken());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    // 批量查询分享元数据：请求体为分享码数组，按请求顺序返回，不包含文本内容，不计入查看次数
+    @PostMapping(value = "/lookup", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void lookupShares(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        List<String> shareIds = readArray(request, JsonParser::getValueAsString);
+        admissionControl.charge(request, AdmissionControlFilter.LOOKUP, shareIds.size());
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator generator = objectMapper.createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            for (int from = 0; from < shareIds.size(); from += LOOKUP_CHUNK_SIZE) {
+                List<String> chunk = shareIds.subList(from, Math.min(shareIds.size(), from + LOOKUP_CHUNK_SIZE));
+                Map<String, ShareContent> shares = shareService.lookupShares(chunk);
+                for (String shareId : chunk) {
+                    generator.writeObject(metadata(shareId, shares.get(shareId)));
+                }
+                generator.flush();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private Map<String, Object> metadata(String shareId, ShareContent share) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("shareId", shareId);
+        result.put("found", share != null);
+        if (share == null) {
+            return result;
+        }
+        result.put("file", share.isFile());
+        result.put("fileName", share.getFileName());
+        result.put("contentType", share.getContentType());
+        result.put("size", share.getSize());
+        result.put("charCount", share.getCharCount());
+        result.put("richText", share.isRichText());
+        result.put("createTime", share.getCreateTime());
+        result.put("viewCount", share.getViewCount());
+        if (share.isMultiFile()) {
+            result.put("fileCount", share.getFiles().size());
+        }
+        return result;
+    }
+
+    private <T> List<T> readArray(HttpServletRequest request, ElementReader<T> reader) throws IOException {
+        if (request.getContentLengthLong() > maxBatchBytes) {
+            throw new PayloadTooLargeException(String.format("批量请求体超过 %d 字节限制", maxBatchBytes));
+        }
+        List<T> items = new ArrayList<>();
+        try (JsonParser parser = requestMapper.createParser(request.getInputStream())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("请求体必须是 JSON 数组");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new IllegalArgumentException("请求体不完整");
+                }
+                if (items.size() >= maxBatchSize) {
+                    throw new IllegalArgumentException(String.format("单次批量请求最多 %d 条", maxBatchSize));
+                }
+                T item = reader.read(parser);
+                if (item == null) {
+                    throw new IllegalArgumentException(String.format("第 %d 条格式错误", items.size() + 1));
+                }
+                items.add(item);
+            }
+        } catch (StreamConstraintsException e) {
+            // 分块传输没有 Content-Length，解析到上限时中止
+            throw new PayloadTooLargeException(String.format("批量请求体超过 %d 字节限制", maxBatchBytes));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("请求体格式错误: " + e.getOriginalMessage());
+        }
+        return items;
+    }
+
+    @FunctionalInterface
+    private interface ElementReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+}
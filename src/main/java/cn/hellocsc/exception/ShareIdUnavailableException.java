@@ -0,0 +1,11 @@
+package cn.hellocsc.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ShareIdUnavailableException extends RuntimeException {
+    public ShareIdUnavailableException(String message) {
+        super(message);
+    }
+}
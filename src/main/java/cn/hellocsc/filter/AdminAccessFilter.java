@@ -0,0 +1,97 @@
+package cn.hellocsc.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 管理接口访问控制 (/api/admin/**、/actuator/metrics/**、/actuator/prometheus)
+ * 指标暴露存储容量、队列和延迟等内部运行状态，与管理接口同样处理；/actuator/health 和 /actuator/info 不受限制。
+ * 配置了 app.admin.token 时要求请求携带 Authorization: Bearer &lt;token&gt;；
+ * 未配置时只允许本机访问（按连接地址判断，不看 X-Forwarded-For）
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@Order(Ordered.HIGHEST_PRECEDENCE + 50)
+public class AdminAccessFilter extends OncePerRequestFilter {
+
+    private static final String BEARER = "Bearer ";
+
+    private static final List<String> PROTECTED_PATHS = List.of("/api/admin", "/actuator/metrics", "/actuator/prometheus");
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.admin.token:}")
+    private String token;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return PROTECTED_PATHS.stream().noneMatch(path::startsWith);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (token == null || token.isBlank()) {
+            if (isLoopback(request.getRemoteAddr())) {
+                chain.doFilter(request, response);
+            } else {
+                deny(response, HttpStatus.FORBIDDEN, "未配置 app.admin.token 时管理接口只允许本机访问");
+            }
+            return;
+        }
+
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.startsWith(BEARER)
+                && MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                authorization.substring(BEARER.length()).trim().getBytes(StandardCharsets.UTF_8))) {
+            chain.doFilter(request, response);
+            return;
+        }
+        response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+        deny(response, HttpStatus.UNAUTHORIZED, "管理接口需要有效的令牌");
+    }
+
+    private static boolean isLoopback(String address) {
+        try {
+            // 连接地址总是 IP 字面量，不会触发 DNS 查询
+            return address != null && InetAddress.getByName(address).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    private void deny(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        log.debug("拒绝管理接口访问: {}", message);
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), Map.of(
+                "success", false,
+                "error", status == HttpStatus.UNAUTHORIZED ? "UNAUTHORIZED" : "FORBIDDEN",
+                "message", message
+        ));
+    }
+}
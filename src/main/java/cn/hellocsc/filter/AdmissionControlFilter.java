@@ -0,0 +1,249 @@
+package cn.hellocsc.filter;
+
+import cn.hellocsc.exception.TooManyRequestsException;
+import cn.hellocsc.metrics.AppMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 准入控制
+ * 按客户端 IP 对查询、创建、下载分别限流（令牌桶），并限制同时进行的上传数；
+ * 在进入 Controller 和存储锁之前拒绝超额请求，返回 429 和 Retry-After
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    public static final String LOOKUP = "lookup";
+    public static final String CREATE = "create";
+    static final String DOWNLOAD = "download";
+    static final String UPLOAD_CONCURRENCY = "upload-concurrency";
+
+    private final AppMetrics metrics;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.admission.enabled:true}")
+    private boolean enabled;
+
+    // 前面的可信反向代理层数：0 时使用连接地址；N 时取 X-Forwarded-For 从右数第 N 项，
+    // 即最外层可信代理追加的地址，更靠左的部分由客户端填写，不可信
+    @Value("${app.admission.trusted-proxies:0}")
+    private int trustedProxies;
+
+    // 最多跟踪的客户端数，超出后淘汰最久未访问的
+    @Value("${app.admission.max-clients:100000}")
+    private long maxClients;
+
+    @Value("${app.admission.lookup.rate:20}")
+    private double lookupRate;
+    @Value("${app.admission.lookup.burst:60}")
+    private double lookupBurst;
+
+    @Value("${app.admission.create.rate:2}")
+    private double createRate;
+    @Value("${app.admission.create.burst:10}")
+    private double createBurst;
+
+    @Value("${app.admission.download.rate:5}")
+    private double downloadRate;
+    @Value("${app.admission.download.burst:20}")
+    private double downloadBurst;
+
+    // 批量接口每多少条扣 1 个令牌，单次批量请求最多扣除桶容量个令牌，
+    // 因此 app.batch.max-size 不能超过 burst * batch-items-per-token
+    @Value("${app.admission.batch-items-per-token:100}")
+    private int batchItemsPerToken;
+
+    @Value("${app.admission.max-concurrent-uploads:16}")
+    private int maxConcurrentUploads;
+
+    private Cache<String, TokenBucket> buckets;
+    private Semaphore uploadPermits;
+
+    @Override
+    protected void initFilterBean() {
+        buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+        uploadPermits = new Semaphore(maxConcurrentUploads);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith(request.getContextPath() + "/api/share");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String budget = classify(request);
+        if (budget == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long waitNanos = bucketFor(clientIp(request), budget).tryAcquire(1);
+        if (waitNanos > 0) {
+            reject(response, budget, waitNanos);
+            return;
+        }
+
+        // 文件上传和流式文本上传额外限制全局并发，避免大量上传同时落盘
+        boolean upload = CREATE.equals(budget) && isUpload(request);
+        if (upload && !uploadPermits.tryAcquire()) {
+            reject(response, UPLOAD_CONCURRENCY, TimeUnit.SECONDS.toNanos(1));
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (upload) {
+                uploadPermits.release();
+            }
+        }
+    }
+
+    /**
+     * 按条目数补扣令牌：批量接口在解析请求体后调用，每 batch-items-per-token 条计 1 个令牌，
+     * 过滤器已为请求本身扣过 1 个
+     *
+     * @throws IllegalArgumentException 条目数超过令牌桶容量允许的上限，等待也无法满足
+     * @throws TooManyRequestsException 令牌不足
+     */
+    public void charge(HttpServletRequest request, String budget, int items) {
+        if (!enabled) {
+            return;
+        }
+        if (items > maxBatchItems(budget)) {
+            throw new IllegalArgumentException(String.format("单次批量请求最多 %d 条", maxBatchItems(budget)));
+        }
+        long tokens = (items + batchItemsPerToken - 1) / batchItemsPerToken;
+        if (tokens <= 1) {
+            return;
+        }
+        long waitNanos = bucketFor(clientIp(request), budget).tryAcquire(tokens - 1);
+        if (waitNanos > 0) {
+            metrics.recordAdmissionRejected(budget);
+            throw new TooManyRequestsException("请求过于频繁，请稍后再试", retryAfterSeconds(waitNanos));
+        }
+    }
+
+    /**
+     * 单次批量请求在该预算下允许的最大条数，未开启准入控制时不限
+     */
+    public long maxBatchItems(String budget) {
+        if (!enabled) {
+            return Long.MAX_VALUE;
+        }
+        return (long) Math.floor(burstFor(budget)) * batchItemsPerToken;
+    }
+
+    private String classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+        if ("POST".equals(method)) {
+            // 批量查询只读，但 ID 列表放在请求体中，需要用 POST
+            return path.startsWith("/api/share/batch/lookup") ? LOOKUP : CREATE;
+        }
+        if ("GET".equals(method)) {
+            // 凭票据下载只校验签名，文件由前置代理发送，断点续传会多次请求同一票据，按查询计
+            if (path.startsWith("/api/share/download/t/")) {
+                return LOOKUP;
+            }
+            return path.startsWith("/api/share/download") ? DOWNLOAD : LOOKUP;
+        }
+        if ("DELETE".equals(method)) {
+            // 所有者删除属于写操作，与创建共用预算
+            return CREATE;
+        }
+        return null;
+    }
+
+    private TokenBucket bucketFor(String clientIp, String budget) {
+        return buckets.get(budget + ':' + clientIp, key -> switch (budget) {
+            case CREATE -> new TokenBucket(createRate, createBurst);
+            case DOWNLOAD -> new TokenBucket(downloadRate, downloadBurst);
+            default -> new TokenBucket(lookupRate, lookupBurst);
+        });
+    }
+
+    private double burstFor(String budget) {
+        return switch (budget) {
+            case CREATE -> createBurst;
+            case DOWNLOAD -> downloadBurst;
+            default -> lookupBurst;
+        };
+    }
+
+    String clientIp(HttpServletRequest request) {
+        if (trustedProxies > 0) {
+            // 多个同名请求头按出现顺序拼接，等同于一个逗号分隔的列表
+            List<String> hops = new ArrayList<>();
+            for (String header : Collections.list(request.getHeaders("X-Forwarded-For"))) {
+                for (String hop : header.split(",")) {
+                    if (!hop.isBlank()) {
+                        hops.add(hop.trim());
+                    }
+                }
+            }
+            // 条目不足说明请求没有经过全部可信代理，退回连接地址
+            if (hops.size() >= trustedProxies) {
+                return hops.get(hops.size() - trustedProxies);
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private boolean isUpload(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        if (contentType != null && contentType.toLowerCase().startsWith("multipart/")) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return path.startsWith("/api/share/text/raw");
+    }
+
+    private static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+    }
+
+    private void reject(HttpServletResponse response, String budget, long waitNanos) throws IOException {
+        metrics.recordAdmissionRejected(budget);
+        long retryAfter = retryAfterSeconds(waitNanos);
+        log.debug("请求被限流 - 类别: {}, Retry-After: {}s", budget, retryAfter);
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), Map.of(
+                "success", false,
+                "error", "TOO_MANY_REQUESTS",
+                "message", "请求过于频繁，请稍后再试"
+        ));
+    }
+}
@@ -0,0 +1,170 @@
+package cn.hellocsc.filter;
+
+import cn.hellocsc.metrics.RequestTrace;
+import cn.hellocsc.metrics.SlowRequestLog;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * 请求阶段计时
+ * 在写出响应体之前输出 Server-Timing 头（元数据读取、锁等待、文件检查等阶段），
+ * 开始写响应体之前的耗时超过阈值的请求记入慢请求缓冲区，传输耗时只记录不参与判断，大文件下载不会都算作慢请求；
+ * 记录的是路由模板而不是实际 URI，分享码、票据等参数不会出现在管理接口中；关闭时直接放行，不做任何分配
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+// 放在准入控制等过滤器之前，总耗时包含它们
+@Order(Ordered.HIGHEST_PRECEDENCE + 100)
+public class RequestTimingFilter extends OncePerRequestFilter {
+
+    private final SlowRequestLog slowRequestLog;
+    private final Clock clock;
+
+    @Value("${app.tracing.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.tracing.slow-request-threshold:1s}")
+    private Duration slowRequestThreshold;
+
+    @Override
+    protected void initFilterBean() {
+        RequestTrace.setEnabled(enabled);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestTrace trace = RequestTrace.start();
+        TimingResponse timingResponse = new TimingResponse(response, trace);
+        try {
+            chain.doFilter(request, timingResponse);
+        } finally {
+            RequestTrace.detach();
+            if (request.isAsyncStarted()) {
+                // 异步下载：传输结束时再计算总耗时
+                request.getAsyncContext().addListener(new AsyncCompletion(request, response, trace));
+            } else {
+                trace.writeHeader(response);
+                complete(request, response, trace);
+            }
+        }
+    }
+
+    private void complete(HttpServletRequest request, HttpServletResponse response, RequestTrace trace) {
+        long totalNanos = trace.finish();
+        long appNanos = trace.appNanos();
+        if (appNanos < slowRequestThreshold.toNanos()) {
+            return;
+        }
+        SlowRequestLog.Entry entry = new SlowRequestLog.Entry(clock.instant(), request.getMethod(), route(request),
+                response.getStatus(), appNanos / 1_000_000.0, totalNanos / 1_000_000.0, trace.phases());
+        slowRequestLog.add(entry);
+        log.debug("慢请求 - {} {} {} ms {}", entry.method(), entry.route(), entry.appMillis(), entry.phases());
+    }
+
+    /**
+     * 匹配到 Controller 时取路由模板，否则（静态资源、404）取不含查询串的路径
+     */
+    private static String route(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : request.getRequestURI();
+    }
+
+    /**
+     * 首次获取输出流/Writer 或提交响应时先写入 Server-Timing
+     */
+    private static final class TimingResponse extends HttpServletResponseWrapper {
+
+        private final RequestTrace trace;
+
+        TimingResponse(HttpServletResponse response, RequestTrace trace) {
+            super(response);
+            this.trace = trace;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            trace.writeHeader(this);
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            trace.writeHeader(this);
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            trace.writeHeader(this);
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            trace.writeHeader(this);
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            trace.writeHeader(this);
+            super.sendError(sc);
+        }
+    }
+
+    private final class AsyncCompletion implements AsyncListener {
+
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final RequestTrace trace;
+
+        AsyncCompletion(HttpServletRequest request, HttpServletResponse response, RequestTrace trace) {
+            this.request = request;
+            this.response = response;
+            this.trace = trace;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            complete(request, response, trace);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package cn.hellocsc.filter;
+
+/**
+ * 令牌桶：按固定速率补充令牌，允许不超过容量的突发
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double ratePerSecond, double capacity) {
+        this.capacity = capacity;
+        this.refillPerNano = ratePerSecond / 1_000_000_000.0;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * 尝试取走指定数量的令牌
+     *
+     * @return 0 表示成功，否则返回需要等待的纳秒数
+     */
+    public synchronized long tryAcquire(double permits) {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+        lastRefill = now;
+        if (tokens >= permits) {
+            tokens -= permits;
+            return 0;
+        }
+        return (long) Math.ceil((permits - tokens) / refillPerNano);
+    }
+}
@@ -1,7 +1,12 @@
 package cn.hellocsc.handler;
 
 import lombok.extern.slf4j.Slf4j;
+import cn.hellocsc.exception.PayloadTooLargeException;
+import cn.hellocsc.exception.ShareIdUnavailableException;
 import cn.hellocsc.exception.ShareNotFoundException;
+import cn.hellocsc.exception.StorageQuotaExceededException;
+import cn.hellocsc.exception.TooManyRequestsException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -35,6 +40,48 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
 
+    @ExceptionHandler(PayloadTooLargeException.class)
+    public ResponseEntity<Map<String, Object>> handlePayloadTooLarge(PayloadTooLargeException ex) {
+        log.warn("文本内容超出限制: {}", ex.getMessage());
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", "TEXT_TOO_LARGE");
+        response.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
+    }
+
+    @ExceptionHandler(StorageQuotaExceededException.class)
+    public ResponseEntity<Map<String, Object>> handleStorageQuotaExceeded(StorageQuotaExceededException ex) {
+        log.warn("存储空间不足: {}", ex.getMessage());
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", "STORAGE_FULL");
+        response.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE).body(response);
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Map<String, Object>> handleTooManyRequests(TooManyRequestsException ex) {
+        log.debug("请求被限流: {}", ex.getMessage());
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", "TOO_MANY_REQUESTS");
+        response.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(response);
+    }
+
+    @ExceptionHandler(ShareIdUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleShareIdUnavailable(ShareIdUnavailableException ex) {
+        log.warn("分享码分配失败: {}", ex.getMessage());
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", "SHARE_ID_UNAVAILABLE");
+        response.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
+
     @ExceptionHandler(SecurityException.class)
     public ResponseEntity<Map<String, Object>> handleSecurityException(SecurityException ex) {
         log.warn("安全验证失败: {}", ex.getMessage());
@@ -0,0 +1,275 @@
+package cn.hellocsc.metrics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 热点路径指标
+ * 所有指标在启动时注册一次，请求路径上只做计数/计时，不再查找或创建指标
+ */
+@Component
+public class AppMetrics {
+
+    private final MeterRegistry registry;
+
+    // 元数据存储
+    private final Timer storageGet;
+    private final Timer storageSave;
+    private final Timer storageFlush;
+    private final DistributionSummary storageFlushBytes;
+    private final AtomicLong snapshotEntries = new AtomicLong(0);
+    private final AtomicLong snapshotBytes = new AtomicLong(0);
+
+    // 上传/下载
+    private final AtomicInteger downloadsInFlight = new AtomicInteger(0);
+    private final AtomicInteger uploadsInFlight = new AtomicInteger(0);
+    private final Counter downloadBytes;
+    private final Counter uploadBytes;
+    private final Counter downloadsMemory;
+    private final Counter downloadsDisk;
+
+    // 下载票据与前置代理卸载，按结果统计
+    private final Map<String, Counter> downloadTickets;
+
+    // 清理任务
+    private final Timer cleanupDuration;
+    private final Counter cleanupFilesDeleted;
+    private final Counter cleanupBytesDeleted;
+    private final Counter cleanupBackoffs;
+    private final AtomicLong cleanupBacklogFiles = new AtomicLong(0);
+    private final AtomicLong cleanupBacklogBytes = new AtomicLong(0);
+
+    // 文本压缩存储
+    private final Timer textCompress;
+    private final Timer textDecompress;
+    private final Counter textRawBytes;
+    private final Counter textStoredBytes;
+    private final Counter textPassThrough;
+
+    // 预览生成，按结果统计
+    private final Timer previewDuration;
+    private final Map<String, Counter> previewResults;
+
+    // 分享码生成
+    private final Counter idRetries;
+    private final Counter idFallbacks;
+
+    // 准入控制，按限流类别统计拒绝次数
+    private final Map<String, Counter> admissionRejected;
+
+    public AppMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        storageGet = Timer.builder("flashshare.storage.get")
+                .description("元数据读取耗时").register(registry);
+        storageSave = Timer.builder("flashshare.storage.save")
+                .description("元数据写入内存缓存耗时").register(registry);
+        storageFlush = Timer.builder("flashshare.storage.flush")
+                .description("元数据快照写盘耗时").register(registry);
+        storageFlushBytes = DistributionSummary.builder("flashshare.storage.flush.bytes")
+                .baseUnit("bytes").description("每次写盘的快照大小").register(registry);
+        Gauge.builder("flashshare.storage.snapshot.entries", snapshotEntries, AtomicLong::get)
+                .description("最近一次快照的记录数").register(registry);
+        Gauge.builder("flashshare.storage.snapshot.bytes", snapshotBytes, AtomicLong::get)
+                .baseUnit("bytes").description("最近一次快照文件大小").register(registry);
+
+        Gauge.builder("flashshare.download.inflight", downloadsInFlight, AtomicInteger::get)
+                .description("进行中的下载数").register(registry);
+        Gauge.builder("flashshare.upload.inflight", uploadsInFlight, AtomicInteger::get)
+                .description("进行中的上传保存数").register(registry);
+        downloadBytes = Counter.builder("flashshare.download.bytes")
+                .baseUnit("bytes").description("下载传输字节数").register(registry);
+        uploadBytes = Counter.builder("flashshare.upload.bytes")
+                .baseUnit("bytes").description("上传保存字节数").register(registry);
+        downloadsMemory = Counter.builder("flashshare.download.count")
+                .tag("source", "memory").description("下载次数").register(registry);
+        downloadsDisk = Counter.builder("flashshare.download.count")
+                .tag("source", "disk").description("下载次数").register(registry);
+        downloadTickets = Map.of(
+                "issued", downloadTicketCounter("issued"),
+                "offloaded", downloadTicketCounter("offloaded"),
+                "invalid", downloadTicketCounter("invalid"),
+                "expired", downloadTicketCounter("expired")
+        );
+
+        cleanupDuration = Timer.builder("flashshare.cleanup.duration")
+                .description("清理任务扫描过期文件的耗时").register(registry);
+        cleanupFilesDeleted = Counter.builder("flashshare.cleanup.files.deleted")
+                .description("后台回收删除的过期文件数").register(registry);
+        cleanupBytesDeleted = Counter.builder("flashshare.cleanup.bytes.deleted")
+                .baseUnit("bytes").description("后台回收释放的字节数").register(registry);
+        cleanupBackoffs = Counter.builder("flashshare.cleanup.backoffs")
+                .description("因请求延迟升高或删除变慢而暂停回收的次数").register(registry);
+        Gauge.builder("flashshare.cleanup.backlog.files", cleanupBacklogFiles, AtomicLong::get)
+                .description("等待回收的过期文件数").register(registry);
+        Gauge.builder("flashshare.cleanup.backlog.bytes", cleanupBacklogBytes, AtomicLong::get)
+                .baseUnit("bytes").description("等待回收的过期文件总大小").register(registry);
+
+        textCompress = Timer.builder("flashshare.text.compress")
+                .description("文本压缩耗时（CPU 开销）").register(registry);
+        textDecompress = Timer.builder("flashshare.text.decompress")
+                .description("文本解压耗时（CPU 开销）").register(registry);
+        textRawBytes = Counter.builder("flashshare.text.compressed.raw.bytes")
+                .baseUnit("bytes").description("压缩存储的文本原始字节数").register(registry);
+        textStoredBytes = Counter.builder("flashshare.text.compressed.stored.bytes")
+                .baseUnit("bytes").description("压缩存储的文本压缩后字节数").register(registry);
+        textPassThrough = Counter.builder("flashshare.text.passthrough")
+                .description("直接返回压缩内容 (Content-Encoding: gzip) 的次数").register(registry);
+
+        previewDuration = Timer.builder("flashshare.preview.duration")
+                .description("预览图生成耗时").register(registry);
+        previewResults = Map.of(
+                "generated", previewCounter("generated"),
+                "skipped", previewCounter("skipped"),
+                "failed", previewCounter("failed"),
+                "rejected", previewCounter("rejected")
+        );
+
+        idRetries = Counter.builder("flashshare.share.id.retries")
+                .description("分享码冲突重试次数").register(registry);
+        idFallbacks = Counter.builder("flashshare.share.id.fallbacks")
+                .description("分享码重试耗尽后退回时间戳的次数").register(registry);
+
+        admissionRejected = Map.of(
+                "lookup", admissionCounter("lookup"),
+                "create", admissionCounter("create"),
+                "download", admissionCounter("download"),
+                "upload-concurrency", admissionCounter("upload-concurrency")
+        );
+    }
+
+    private Counter admissionCounter(String budget) {
+        return Counter.builder("flashshare.admission.rejected")
+                .tag("budget", budget).description("准入控制拒绝的请求数").register(registry);
+    }
+
+    private Counter downloadTicketCounter(String result) {
+        return Counter.builder("flashshare.download.ticket")
+                .tag("result", result).description("下载票据签发与校验次数").register(registry);
+    }
+
+    private Counter previewCounter(String result) {
+        return Counter.builder("flashshare.preview.count")
+                .tag("result", result).description("预览生成任务数").register(registry);
+    }
+
+    /**
+     * 注册 Caffeine 缓存的命中率等指标（缓存需开启 recordStats）
+     */
+    public void monitorCache(Cache<?, ?> cache, String name) {
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+    }
+
+    public void recordStorageGet(long nanos) {
+        storageGet.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordStorageSave(long nanos) {
+        storageSave.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFlush(long nanos, long bytes, long entries) {
+        storageFlush.record(nanos, TimeUnit.NANOSECONDS);
+        storageFlushBytes.record(bytes);
+        snapshotBytes.set(bytes);
+        snapshotEntries.set(entries);
+    }
+
+    public void downloadStarted(boolean fromMemory) {
+        downloadsInFlight.incrementAndGet();
+        (fromMemory ? downloadsMemory : downloadsDisk).increment();
+    }
+
+    public void downloadFinished(long bytes) {
+        downloadsInFlight.decrementAndGet();
+        downloadBytes.increment(bytes);
+    }
+
+    public void recordDownloadTicket(String result) {
+        Counter counter = downloadTickets.get(result);
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    public void uploadStarted() {
+        uploadsInFlight.incrementAndGet();
+    }
+
+    public void uploadFinished(long bytes) {
+        uploadsInFlight.decrementAndGet();
+        uploadBytes.increment(bytes);
+    }
+
+    public void recordCleanupScan(long nanos) {
+        cleanupDuration.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFileReclaimed(long bytes) {
+        cleanupFilesDeleted.increment();
+        cleanupBytesDeleted.increment(bytes);
+    }
+
+    public void recordCleanupBacklog(long files, long bytes) {
+        cleanupBacklogFiles.set(files);
+        cleanupBacklogBytes.set(bytes);
+    }
+
+    public void recordCleanupBackoff() {
+        cleanupBackoffs.increment();
+    }
+
+    public void recordTextCompress(long nanos) {
+        textCompress.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordTextDecompress(long nanos) {
+        textDecompress.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordTextCompressed(long rawBytes, long storedBytes) {
+        textRawBytes.increment(rawBytes);
+        textStoredBytes.increment(storedBytes);
+    }
+
+    public void recordTextPassThrough() {
+        textPassThrough.increment();
+    }
+
+    public void recordPreviewDuration(long nanos) {
+        previewDuration.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPreview(String result) {
+        Counter counter = previewResults.get(result);
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    public void recordIdRetry() {
+        idRetries.increment();
+    }
+
+    public void recordIdFallback() {
+        idFallbacks.increment();
+    }
+
+    public void recordAdmissionRejected(String budget) {
+        Counter counter = admissionRejected.get(budget);
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package cn.hellocsc.metrics;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 单个请求的阶段耗时记录，输出为 Server-Timing 响应头
+ * 关闭时 {@link #begin()} 直接返回 0，{@link #end} 立即返回，请求路径上不读取时钟、不访问 ThreadLocal、不分配对象
+ *
+ * <pre>
+ * long start = RequestTrace.begin();
+ * ...
+ * RequestTrace.end(RequestTrace.META_GET, start);
+ * </pre>
+ */
+public final class RequestTrace {
+
+    // 阶段名称（同名阶段累加）
+    public static final String LOCK_WAIT = "lock";
+    public static final String META_GET = "meta-get";
+    public static final String META_SAVE = "meta-save";
+    public static final String FILE_CHECK = "file-check";
+    public static final String ID_ALLOC = "id-alloc";
+    public static final String STORE = "store";
+    // 从开始写响应体到请求结束：JSON 序列化或文件传输
+    public static final String WRITE = "write";
+
+    private static final int MAX_PHASES = 16;
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+    private static volatile boolean enabled;
+
+    private final long startNanos = System.nanoTime();
+    private final String[] names = new String[MAX_PHASES];
+    private final long[] nanos = new long[MAX_PHASES];
+    private int count;
+    private long bodyStartNanos;
+    private long endNanos;
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 开始计时，关闭时返回 0
+     */
+    public static long begin() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * 结束计时并计入当前请求的 phase 阶段
+     */
+    public static void end(String phase, long start) {
+        if (start == 0) {
+            return;
+        }
+        RequestTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.add(phase, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 响应头尚未提交时写入 Server-Timing，之后的耗时计入 write 阶段；重复调用只生效一次
+     */
+    public static void writeServerTiming(HttpServletResponse response) {
+        if (!enabled) {
+            return;
+        }
+        RequestTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.writeHeader(response);
+        }
+    }
+
+    /**
+     * 为当前线程上的请求开始记录
+     */
+    public static RequestTrace start() {
+        RequestTrace trace = new RequestTrace();
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    public static void detach() {
+        CURRENT.remove();
+    }
+
+    synchronized void add(String phase, long elapsed) {
+        for (int i = 0; i < count; i++) {
+            if (names[i].equals(phase)) {
+                nanos[i] += elapsed;
+                return;
+            }
+        }
+        if (count < MAX_PHASES) {
+            names[count] = phase;
+            nanos[count++] = elapsed;
+        }
+    }
+
+    public synchronized void writeHeader(HttpServletResponse response) {
+        if (bodyStartNanos != 0 || response.isCommitted()) {
+            return;
+        }
+        bodyStartNanos = System.nanoTime();
+        StringBuilder header = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            header.append(names[i]).append(";dur=").append(toMillis(nanos[i])).append(", ");
+        }
+        header.append("app;dur=").append(toMillis(bodyStartNanos - startNanos));
+        response.setHeader("Server-Timing", header.toString());
+    }
+
+    /**
+     * 请求结束（异步下载在传输完成时），返回总耗时
+     */
+    public synchronized long finish() {
+        endNanos = System.nanoTime();
+        if (bodyStartNanos != 0) {
+            add(WRITE, endNanos - bodyStartNanos);
+        }
+        return endNanos - startNanos;
+    }
+
+    /**
+     * 开始写响应体之前的耗时（应用处理时间，不含传输），没有响应体时等于总耗时；在 {@link #finish()} 之后调用
+     */
+    public synchronized long appNanos() {
+        return (bodyStartNanos != 0 ? bodyStartNanos : endNanos) - startNanos;
+    }
+
+    public synchronized Map<String, Double> phases() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            result.put(names[i], toMillis(nanos[i]));
+        }
+        return result;
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+}
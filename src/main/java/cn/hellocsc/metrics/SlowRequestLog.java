@@ -0,0 +1,58 @@
+package cn.hellocsc.metrics;
+
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 慢请求记录：应用处理耗时超过阈值的请求连同阶段耗时保存在固定大小的环形缓冲区中，满后覆盖最早的记录
+ */
+@Component
+// 管理接口通过 Jackson 输出记录，原生镜像需要登记绑定反射
+@RegisterReflectionForBinding(SlowRequestLog.Entry.class)
+public class SlowRequestLog {
+
+    private final Entry[] entries;
+    private long next;
+
+    public SlowRequestLog(@Value("${app.tracing.slow-request-capacity:256}") int capacity) {
+        this.entries = new Entry[Math.max(1, capacity)];
+    }
+
+    public synchronized void add(Entry entry) {
+        entries[(int) (next++ % entries.length)] = entry;
+    }
+
+    /**
+     * 按时间从新到旧返回
+     */
+    public synchronized List<Entry> recent() {
+        int size = (int) Math.min(next, entries.length);
+        List<Entry> result = new ArrayList<>(size);
+        for (long i = next - 1; i >= next - size; i--) {
+            result.add(entries[(int) (i % entries.length)]);
+        }
+        return result;
+    }
+
+    public synchronized long getCaptured() {
+        return next;
+    }
+
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    /**
+     * @param route     匹配的路由模板（如 /api/share/download/t/{ticket}），不含路径参数和查询串
+     * @param appMillis 开始写响应体之前的耗时，按它判断是否为慢请求
+     */
+    public record Entry(Instant time, String method, String route, int status, double appMillis,
+                        double totalMillis, Map<String, Double> phases) {
+    }
+}
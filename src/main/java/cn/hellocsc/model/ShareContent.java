@@ -4,6 +4,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Data
 public class ShareContent {
@@ -11,8 +13,10 @@ public class ShareContent {
     private boolean file;            // 是否是文件
     private String fileName;         // 文件名 (文件分享时)
     private String contentType;      // MIME类型
-    private long size;               // 文件大小/文本长度
-    private String textContent;      // 文本内容 (文本分享时)
+    private long size;               // 文件大小/文本字节数 (UTF-8)
+    private long charCount;          // 文本字符数 (文本分享时)
+    private String textContent;      // 文本内容 (文本分享时，流式上传的大文本为空，内容在 filePath；压缩存储时为空)
+    private byte[] textGzip;         // 压缩存储的文本内容 (gzip)，快照中以 Base64 保存，不通过接口返回
     private boolean richText;        // 是否富文本
     private LocalDateTime createTime; // 创建时间
     private int viewCount;           // 查看次数
@@ -20,7 +24,45 @@ public class ShareContent {
     // 文件存储路径 - 持久化时需要保存
     private String filePath; // 服务器文件路径
 
+    // 多文件分享的文件列表（单文件分享时为空），下载时打包为 ZIP
+    private List<SharedFile> files;
+
+    // 预览图（图片缩略图、PDF 首页、视频截帧），后台生成完成后写入，可能一直为空
+    private SharedFile preview;
+
+    // 所有者删除令牌的 SHA-256（十六进制），持久化保存，不通过接口返回
+    private String ownerTokenHash;
+
     // 仅内存存储使用
     @JsonIgnore
     private transient byte[] fileBytes; // 小文件内容 (内存存储)
+
+    @JsonIgnore
+    private transient String ownerToken; // 所有者删除令牌明文，只在创建响应中返回一次
+
+    @JsonIgnore
+    public boolean isMultiFile() {
+        return files != null && !files.isEmpty();
+    }
+
+    /**
+     * 分享占用的所有存储文件：多文件分享为文件列表，单文件分享和流式文本为 filePath，另加预览图
+     */
+    public List<SharedFile> storedFiles() {
+        List<SharedFile> stored = new ArrayList<>();
+        if (isMultiFile()) {
+            stored.addAll(files);
+        } else if (filePath != null) {
+            SharedFile single = new SharedFile();
+            single.setName(fileName);
+            single.setContentType(contentType);
+            single.setSize(size);
+            single.setFilePath(filePath);
+            stored.add(single);
+        }
+        if (preview != null) {
+            stored.add(preview);
+        }
+        return stored;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package cn.hellocsc.model;
+
+import lombok.Data;
+
+/**
+ * 多文件分享中的单个文件
+ */
+@Data
+public class SharedFile {
+    private String name;             // 文件在压缩包中的路径（已清理，不含 .. 和绝对路径）
+    private String contentType;      // MIME类型
+    private long size;               // 文件大小
+    private String filePath;         // 存储路径
+    private Long crc32;              // CRC-32，上传时计算，用于 ZIP 中以 STORED 方式写入
+}
@@ -0,0 +1,176 @@
+package cn.hellocsc.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 下载带宽调度
+ * 全局带宽按权重在所有进行中的下载之间分配（加权公平排队的流体近似），小文件权重更高以便尽快完成；
+ * 另外支持单连接和单个分享的速率上限。调度只决定每个分块的发送时间，不改变传输方式（仍为 transferTo）
+ */
+@Slf4j
+@Service
+public class BandwidthScheduler implements DisposableBean {
+
+    // 超过此大小的下载权重为 1，越小权重越高
+    private static final long WEIGHT_REFERENCE_BYTES = 64L * 1024 * 1024;
+    private static final double MAX_WEIGHT = 16;
+    // 空闲后允许的突发时长，避免慢速读取的连接被过度惩罚
+    private static final long BURST_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Value("${app.bandwidth.enabled:false}")
+    private boolean enabled;
+
+    // 全局上限（字节/秒），0 表示不限
+    @Value("${app.bandwidth.global-bytes-per-second:0}")
+    private long globalRate;
+
+    // 单连接上限（字节/秒），0 表示不限
+    @Value("${app.bandwidth.per-connection-bytes-per-second:0}")
+    private long perConnectionRate;
+
+    // 单个分享所有连接合计上限（字节/秒），0 表示不限
+    @Value("${app.bandwidth.per-share-bytes-per-second:0}")
+    private long perShareRate;
+
+    // 每次调度的最大分块，速率变化在一个分块内生效
+    @Value("${app.bandwidth.chunk-size:262144}")
+    private int chunkSize;
+
+    // 所有进行中下载的权重之和（乘以 1000 存为整数）
+    private final AtomicLong totalWeightMillis = new AtomicLong(0);
+
+    // 每个分享当前的下载连接数
+    private final Map<String, AtomicInteger> shareFlows = new ConcurrentHashMap<>();
+
+    // 异步下载暂停后的恢复定时器
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "bandwidth-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 为一次下载创建调度流，下载结束时必须关闭
+     */
+    public Flow open(String shareId, long totalBytes) {
+        if (!enabled || (globalRate <= 0 && perConnectionRate <= 0 && perShareRate <= 0)) {
+            return new Flow(this, shareId, 0, false);
+        }
+        double weight = Math.max(1, Math.min(MAX_WEIGHT, (double) WEIGHT_REFERENCE_BYTES / Math.max(totalBytes, 1)));
+        totalWeightMillis.addAndGet(Math.round(weight * 1000));
+        shareFlows.computeIfAbsent(shareId, key -> new AtomicInteger()).incrementAndGet();
+        return new Flow(this, shareId, weight, true);
+    }
+
+    private void schedule(Runnable task, long delayNanos) {
+        timer.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        timer.shutdownNow();
+    }
+
+    private double rateFor(Flow flow) {
+        double rate = Double.MAX_VALUE;
+        if (globalRate > 0) {
+            double totalWeight = Math.max(totalWeightMillis.get() / 1000.0, flow.weight);
+            rate = globalRate * flow.weight / totalWeight;
+        }
+        if (perConnectionRate > 0) {
+            rate = Math.min(rate, perConnectionRate);
+        }
+        if (perShareRate > 0) {
+            AtomicInteger flows = shareFlows.get(flow.shareId);
+            rate = Math.min(rate, (double) perShareRate / Math.max(1, flows == null ? 1 : flows.get()));
+        }
+        return rate;
+    }
+
+    private void close(Flow flow) {
+        totalWeightMillis.addAndGet(-Math.round(flow.weight * 1000));
+        shareFlows.computeIfPresent(flow.shareId, (key, count) -> count.decrementAndGet() <= 0 ? null : count);
+    }
+
+    /**
+     * 单个下载的调度流
+     */
+    public static final class Flow implements AutoCloseable {
+        private final BandwidthScheduler scheduler;
+        private final String shareId;
+        private final double weight;
+        private final boolean shaped;
+        // 下一个分块最早的发送时间
+        private long nextSendNanos = System.nanoTime();
+        private boolean closed = false;
+
+        private Flow(BandwidthScheduler scheduler, String shareId, double weight, boolean shaped) {
+            this.scheduler = scheduler;
+            this.shareId = shareId;
+            this.weight = weight;
+            this.shaped = shaped;
+        }
+
+        /**
+         * 本次可发送的最大字节数（不超过调度分块）
+         */
+        public long chunk(long remaining) {
+            return shaped ? Math.min(remaining, scheduler.chunkSize) : remaining;
+        }
+
+        /**
+         * 预约发送 bytes 字节，返回发送前需要等待的纳秒数（0 表示可立即发送）
+         */
+        public synchronized long reserve(long bytes) {
+            if (!shaped) {
+                return 0;
+            }
+            long now = System.nanoTime();
+            long start = Math.max(nextSendNanos, now - BURST_NANOS);
+            nextSendNanos = start + (long) (bytes * 1_000_000_000.0 / scheduler.rateFor(this));
+            return Math.max(0, start - now);
+        }
+
+        /**
+         * 阻塞模式：预约并等待到可发送时间
+         */
+        public void pace(long bytes) throws InterruptedIOException {
+            long waitNanos = reserve(bytes);
+            if (waitNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("下载限速等待被中断");
+                }
+            }
+        }
+
+        /**
+         * 异步模式：等待结束后在定时器线程上执行 task
+         */
+        public void resumeAfter(Runnable task, long delayNanos) {
+            scheduler.schedule(task, delayNanos);
+        }
+
+        @Override
+        public synchronized void close() {
+            if (shaped && !closed) {
+                closed = true;
+                scheduler.close(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package cn.hellocsc.service;
+
+import cn.hellocsc.metrics.AppMetrics;
+import cn.hellocsc.model.ShareContent;
+import cn.hellocsc.storage.BlobStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * 下载票据与前置代理卸载
+ * 下载请求只校验一次分享（计数、文件检查），随后签发短时有效的 HMAC 票据；
+ * 票据携带存储 key、文件名、类型和过期时间，校验时只做一次 HMAC 计算，不访问元数据和存储，
+ * 响应中返回 X-Accel-Redirect (nginx) 或 X-Sendfile (Apache/lighttpd)，由前置代理直接发送文件
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DownloadTicketService implements InitializingBean {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String VERSION = "1";
+    private static final int FIELDS = 7;
+
+    private final BlobStore blobStore;
+    private final AppMetrics metrics;
+    private final Clock clock;
+
+    // none（默认，应用自己发送文件）、x-accel-redirect 或 x-sendfile
+    @Value("${app.download.offload.mode:none}")
+    private String mode;
+
+    // nginx 中指向 storage.path 的 internal location
+    @Value("${app.download.offload.internal-prefix:/internal-files/}")
+    private String internalPrefix;
+
+    @Value("${app.download.ticket.ttl:60s}")
+    private Duration ttl;
+
+    // 多节点部署时各节点必须一致；为空时启动时随机生成，重启后已签发的票据失效
+    @Value("${app.download.ticket.secret:}")
+    private String secret;
+
+    private Mode offloadMode;
+    private Mac prototype;
+
+    public enum Mode {
+        NONE(null), X_ACCEL_REDIRECT("X-Accel-Redirect"), X_SENDFILE("X-Sendfile");
+
+        private final String header;
+
+        Mode(String header) {
+            this.header = header;
+        }
+    }
+
+    /**
+     * 校验通过的票据内容
+     */
+    public record Ticket(String shareId, String key, String fileName, String contentType, long size,
+                         long expiresAt) {
+
+        /**
+         * 按单文件分享的形式返回，以便沿用下载响应头
+         */
+        public ShareContent toShare() {
+            ShareContent share = new ShareContent();
+            share.setShareId(shareId);
+            share.setFile(true);
+            share.setFileName(fileName);
+            share.setContentType(contentType);
+            share.setSize(size);
+            share.setFilePath(key);
+            return share;
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() throws GeneralSecurityException {
+        offloadMode = Mode.valueOf(mode.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        if (offloadMode != Mode.NONE && blobStore.localPath("probe").isEmpty()) {
+            // 代理只能发送本地文件，对象存储仍由应用流式下载
+            log.warn("文件存储不是本地目录，下载卸载 ({}) 不生效", mode);
+            offloadMode = Mode.NONE;
+        }
+
+        byte[] key;
+        if (secret == null || secret.isBlank()) {
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+            if (offloadMode != Mode.NONE) {
+                log.warn("未配置 app.download.ticket.secret，使用随机密钥：重启后已签发的票据失效，多节点之间不能互认");
+            }
+        } else {
+            key = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        prototype = Mac.getInstance(ALGORITHM);
+        prototype.init(new SecretKeySpec(key, ALGORITHM));
+        if (offloadMode != Mode.NONE) {
+            log.info("下载卸载已开启 - 模式: {}, 票据有效期: {}", offloadMode.header, ttl);
+        }
+    }
+
+    public boolean isEnabled() {
+        return offloadMode != Mode.NONE;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    /**
+     * 为已校验的单文件分享签发票据
+     */
+    public String issue(ShareContent share) {
+        long expiresAt = clock.instant().plus(ttl).getEpochSecond();
+        String payload = String.join("\n", VERSION, encode(share.getShareId()), encode(share.getFilePath()),
+                encode(share.getFileName()), encode(share.getContentType()), String.valueOf(share.getSize()),
+                String.valueOf(expiresAt));
+        String body = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        metrics.recordDownloadTicket("issued");
+        return body + "." + sign(body);
+    }
+
+    /**
+     * 校验签名和有效期，签名在解码前比较，篡改过的票据不会被解析
+     *
+     * @throws SecurityException 票据无效或已过期
+     */
+    public Ticket verify(String ticket) {
+        int dot = ticket.lastIndexOf('.');
+        if (dot <= 0 || !MessageDigest.isEqual(sign(ticket.substring(0, dot)).getBytes(StandardCharsets.US_ASCII),
+                ticket.substring(dot + 1).getBytes(StandardCharsets.US_ASCII))) {
+            metrics.recordDownloadTicket("invalid");
+            throw new SecurityException("下载票据无效");
+        }
+
+        String[] fields;
+        try {
+            fields = new String(Base64.getUrlDecoder().decode(ticket.substring(0, dot)), StandardCharsets.UTF_8)
+                    .split("\n", -1);
+        } catch (IllegalArgumentException e) {
+            fields = new String[0];
+        }
+        if (fields.length != FIELDS || !VERSION.equals(fields[0])) {
+            metrics.recordDownloadTicket("invalid");
+            throw new SecurityException("下载票据无效");
+        }
+        long expiresAt = Long.parseLong(fields[6]);
+        if (clock.instant().getEpochSecond() > expiresAt) {
+            metrics.recordDownloadTicket("expired");
+            throw new SecurityException("下载票据已过期");
+        }
+        return new Ticket(decode(fields[1]), decode(fields[2]), decode(fields[3]), decode(fields[4]),
+                Long.parseLong(fields[5]), expiresAt);
+    }
+
+    public String offloadHeader() {
+        return offloadMode.header;
+    }
+
+    /**
+     * 交给代理的文件位置：nginx 为 internal location 下的 URI，X-Sendfile 为磁盘绝对路径
+     * 只做路径拼接，不访问文件系统
+     */
+    public Optional<String> offloadLocation(Ticket ticket) {
+        return switch (offloadMode) {
+            case X_ACCEL_REDIRECT -> Optional.of(internalPrefix
+                    + URLEncoder.encode(ticket.key(), StandardCharsets.UTF_8).replace("+", "%20"));
+            case X_SENDFILE -> blobStore.localPath(ticket.key()).map(path -> path.toAbsolutePath().toString());
+            case NONE -> Optional.empty();
+        };
+    }
+
+    private String sign(String body) {
+        Mac mac;
+        try {
+            mac = (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HMAC 不支持复制", e);
+        }
+        byte[] signature = mac.doFinal(body.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+
+    private static String encode(String value) {
+        return value != null ? URLEncoder.encode(value, StandardCharsets.UTF_8) : "";
+    }
+
+    private static String decode(String value) {
+        return value.isEmpty() ? null : URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -1,49 +1,74 @@
 package cn.hellocsc.service;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import cn.hellocsc.exception.PayloadTooLargeException;
+import cn.hellocsc.exception.StorageQuotaExceededException;
 import cn.hellocsc.model.ShareContent;
-import org.springframework.beans.factory.annotation.Value;
+import cn.hellocsc.model.SharedFile;
+import cn.hellocsc.storage.BlobStore;
+import cn.hellocsc.storage.HotFileTier;
+import cn.hellocsc.storage.SmallFileCache;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class FileStorageService {
 
-    @Value("${storage.path:file}")
-    private String storagePath;
+    private final BlobStore blobStore;
+    private final StorageQuotaService storageQuotaService;
+    private final SmallFileCache smallFileCache;
+    private final HotFileTier hotFileTier;
+    private final Clock clock;
+
+    // 进行中的下载按文件计数；所有者删除时仍在下载的文件推迟到最后一个下载结束后再删除
+    private final ConcurrentHashMap<String, Integer> readers = new ConcurrentHashMap<>();
+    private final Set<String> deferredDeletes = ConcurrentHashMap.newKeySet();
 
     public ShareContent saveFile(MultipartFile file, ShareContent share) throws IOException {
         // 创建唯一文件名
         String originalName = file.getOriginalFilename();
-        String extension = (originalName != null && originalName.contains("."))
-                ? originalName.substring(originalName.lastIndexOf(".")) : "";
-        String uniqueName = UUID.randomUUID() + extension;
-
-        // 获取绝对路径
-        Path storageDir = Paths.get(storagePath).toAbsolutePath().normalize();
-        Path filePath = storageDir.resolve(uniqueName);
-
-        // 确保存储目录存在
-        Files.createDirectories(storageDir);
+        String uniqueName = uniqueName(originalName);
 
         // --- 修复点开始 ---
         // 1. 先获取所有元数据！(因为 transferTo 可能会移动文件导致源文件丢失)
         long fileSize = file.getSize();
         String contentType = file.getContentType();
 
-        // 2. 执行传输 (这一步之后，file 对象可能就不可用了)
-        log.info("开始保存文件到: {}", filePath);
-        file.transferTo(filePath.toFile());
+        // 2. 预留磁盘配额，超出上限直接拒绝
+        reserve(fileSize);
+
+        // 3. 执行传输 (这一步之后，file 对象可能就不可用了)
+        log.info("开始保存文件: {}", uniqueName);
+        try {
+            store(file, uniqueName, fileSize, contentType, false);
+        } catch (IOException | RuntimeException e) {
+            storageQuotaService.release(fileSize);
+            deleteQuietly(uniqueName);
+            throw e;
+        }
         // --- 修复点结束 ---
 
         // 设置文件信息
@@ -56,41 +81,263 @@ public class FileStorageService {
         return share;
     }
 
-    public Path getFile(String fileName) {
-        // 如果是绝对路径，直接使用（兼容旧数据）
-        Path path = Paths.get(fileName);
-        if (path.isAbsolute()) {
-            return path;
+    /**
+     * 保存多文件分享中的一个文件；已压缩的类型在上传时计算 CRC-32，打包下载时以 STORED 方式直接写入
+     *
+     * @param entryName 清理后的压缩包内路径
+     */
+    public SharedFile saveEntry(MultipartFile file, String entryName) throws IOException {
+        String uniqueName = uniqueName(entryName);
+        long fileSize = file.getSize();
+        String contentType = file.getContentType();
+        reserve(fileSize);
+
+        Long crc32;
+        try {
+            crc32 = store(file, uniqueName, fileSize, contentType,
+                    ZipArchiveStreamer.isCompressed(entryName, contentType));
+        } catch (IOException | RuntimeException e) {
+            storageQuotaService.release(fileSize);
+            deleteQuietly(uniqueName);
+            throw e;
+        }
+
+        SharedFile entry = new SharedFile();
+        entry.setName(entryName);
+        entry.setContentType(contentType);
+        entry.setSize(fileSize);
+        entry.setFilePath(uniqueName);
+        entry.setCrc32(crc32);
+        return entry;
+    }
+
+    private static String uniqueName(String originalName) {
+        String extension = (originalName != null && originalName.contains("."))
+                ? originalName.substring(originalName.lastIndexOf(".")) : "";
+        // 扩展名只用于辨认文件类型，不能带入路径分隔符
+        if (extension.contains("/") || extension.contains("\\")) {
+            extension = "";
+        }
+        return UUID.randomUUID() + extension;
+    }
+
+    private void reserve(long bytes) {
+        if (!storageQuotaService.tryReserve(bytes)) {
+            throw new StorageQuotaExceededException(String.format(
+                    "存储空间不足：需要 %d 字节，剩余 %d 字节", bytes, storageQuotaService.getHeadroom()));
+        }
+    }
+
+    /**
+     * 流式保存文本：边写入文件存储边统计字节数和字符数，超过上限立即中止，全文不进入堆内存
+     *
+     * @param contentLength 请求声明的长度，未知（分块传输）时为 -1
+     */
+    public ShareContent saveText(InputStream content, long contentLength, long maxBytes, ShareContent share)
+            throws IOException {
+        if (contentLength > maxBytes) {
+            throw new PayloadTooLargeException(String.format("文本内容超过 %d 字节限制", maxBytes));
+        }
+        String extension = MediaType.TEXT_MARKDOWN_VALUE.equals(share.getContentType()) ? ".md" : ".txt";
+        String uniqueName = UUID.randomUUID() + extension;
+
+        // 长度未知时先按上限预留配额，写完后退回多余部分
+        long reserved = contentLength >= 0 ? contentLength : maxBytes;
+        if (!storageQuotaService.tryReserve(reserved)) {
+            throw new StorageQuotaExceededException(String.format(
+                    "存储空间不足：需要 %d 字节，剩余 %d 字节", reserved, storageQuotaService.getHeadroom()));
+        }
+
+        TextIngestInputStream counting = new TextIngestInputStream(content, maxBytes);
+        try {
+            blobStore.put(uniqueName, counting, contentLength, share.getContentType());
+        } catch (IOException | RuntimeException e) {
+            storageQuotaService.release(reserved);
+            deleteQuietly(uniqueName);
+            throw e;
+        }
+        storageQuotaService.release(Math.max(0, reserved - counting.getBytes()));
+
+        share.setSize(counting.getBytes());
+        share.setCharCount(counting.getChars());
+        share.setFilePath(uniqueName);
+        return share;
+    }
+
+    /**
+     * 写入文件存储，checksum 为 true 时顺带计算 CRC-32 并返回，否则返回 null
+     */
+    private Long store(MultipartFile file, String key, long fileSize, String contentType, boolean checksum)
+            throws IOException {
+        // 小文件同时放入内存层，后续下载不再访问文件存储
+        if (smallFileCache.accepts(fileSize)) {
+            byte[] content = file.getBytes();
+            blobStore.put(key, new ByteArrayInputStream(content), fileSize, contentType);
+            smallFileCache.put(key, content);
+            if (!checksum) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            return crc.getValue();
+        }
+
+        // 本地存储：沿用 transferTo，上传临时文件可直接移动到存储目录
+        Optional<Path> localPath = blobStore.localPath(key);
+        if (localPath.isPresent()) {
+            Files.createDirectories(localPath.get().getParent());
+            file.transferTo(localPath.get());
+            if (!checksum) {
+                return null;
+            }
+            // 刚写入的文件仍在页缓存中，回读一遍的代价很小
+            try (CheckedInputStream input = new CheckedInputStream(Files.newInputStream(localPath.get()), new CRC32())) {
+                input.transferTo(OutputStream.nullOutputStream());
+                return input.getChecksum().getValue();
+            }
+        }
+
+        try (InputStream content = file.getInputStream()) {
+            if (!checksum) {
+                blobStore.put(key, content, fileSize, contentType);
+                return null;
+            }
+            CheckedInputStream checked = new CheckedInputStream(content, new CRC32());
+            blobStore.put(key, checked, fileSize, contentType);
+            return checked.getChecksum().getValue();
         }
-        // 否则，从存储根目录解析
-        return Paths.get(storagePath).toAbsolutePath().normalize().resolve(fileName);
     }
 
     /**
-     * 清理过期文件
+     * 文件在本地磁盘上的路径，仅本地存储可用（用于零拷贝下载）
      */
-    public int deleteExpiredFiles(int hours) {
-        AtomicInteger deletedCount = new AtomicInteger(0);
+    public Optional<Path> getLocalFile(String fileName) {
+        return blobStore.localPath(fileName);
+    }
+
+    public boolean exists(String fileName) {
         try {
-            Path dir = Paths.get(storagePath).toAbsolutePath().normalize();
-            if (!Files.exists(dir)) {
-                return 0;
+            return blobStore.exists(fileName);
+        } catch (IOException e) {
+            log.warn("查询文件失败: {}", fileName, e);
+            return false;
+        }
+    }
+
+    /**
+     * 以流的方式读取文件，调用方负责关闭
+     */
+    public InputStream openFile(String fileName) throws IOException {
+        return blobStore.get(fileName);
+    }
+
+    /**
+     * 从内存层获取文件内容：小文件走小文件内存层；其余本地文件只记录热度（热点层负责预热页缓存），
+     * 返回空，由调用方用 transferTo 从磁盘发送
+     */
+    public Optional<ByteBuffer> getCachedFile(String fileName, long size) {
+        if (smallFileCache.accepts(size)) {
+            return smallFileCache.get(fileName, size, blobStore);
+        }
+        // 热点层依赖内存映射，只对本地文件生效
+        blobStore.localPath(fileName).ifPresent(path -> hotFileTier.record(fileName, path));
+        return Optional.empty();
+    }
+
+    /**
+     * 登记对一组文件的读取，租约关闭前这些文件不会被 {@link #deleteWhenIdle} 删除
+     */
+    public ReadLease acquireRead(Collection<String> keys) {
+        keys.forEach(key -> readers.merge(key, 1, Integer::sum));
+        AtomicBoolean closed = new AtomicBoolean();
+        return () -> {
+            if (closed.compareAndSet(false, true)) {
+                keys.forEach(this::releaseRead);
             }
-            long cutOff = System.currentTimeMillis() - (hours * 60 * 60 * 1000L);
-            try (Stream<Path> files = Files.list(dir)) {
-                files.forEach(path -> {
-                    File file = path.toFile();
-                    if (file.isFile() && file.lastModified() < cutOff) {
-                        if (file.delete()) {
-                            deletedCount.incrementAndGet();
-                            log.debug("已删除过期文件: {}", file.getName());
-                        }
-                    }
-                });
+        };
+    }
+
+    private void releaseRead(String key) {
+        boolean[] deleteNow = {false};
+        readers.computeIfPresent(key, (k, count) -> {
+            if (count > 1) {
+                return count - 1;
             }
+            deleteNow[0] = deferredDeletes.remove(k);
+            return null;
+        });
+        if (deleteNow[0]) {
+            deleteFile(key);
+            log.debug("下载结束，删除已推迟的文件: {}", key);
+        }
+    }
+
+    /**
+     * 没有进行中的读取时立即删除并释放配额，否则推迟到最后一个读取租约关闭时
+     *
+     * @return 立即删除时返回释放的字节数，推迟时返回 0
+     */
+    public long deleteWhenIdle(String fileName) {
+        boolean[] deferred = {false};
+        readers.computeIfPresent(fileName, (k, count) -> {
+            deferredDeletes.add(k);
+            deferred[0] = true;
+            return count;
+        });
+        if (deferred[0]) {
+            // 新的下载已无法通过元数据找到该文件，这里只让内存层不再返回它
+            smallFileCache.invalidate(fileName);
+            hotFileTier.invalidate(fileName);
+            log.debug("文件仍在下载，推迟删除: {}", fileName);
+            return 0;
+        }
+        return deleteFile(fileName);
+    }
+
+    /**
+     * 删除指定文件并释放配额，返回释放的字节数
+     */
+    public long deleteFile(String fileName) {
+        smallFileCache.invalidate(fileName);
+        hotFileTier.invalidate(fileName);
+        try {
+            long size = blobStore.delete(fileName);
+            if (size > 0) {
+                storageQuotaService.release(size);
+                log.debug("已删除文件: {}", fileName);
+            }
+            return size;
+        } catch (IOException e) {
+            log.error("删除文件失败: {}", fileName, e);
+        }
+        return 0;
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            blobStore.delete(key);
+        } catch (IOException e) {
+            log.warn("清理未完成的文件失败: {}", key, e);
+        }
+    }
+
+    /**
+     * 列出修改时间早于指定小时数的文件，交给后台回收执行器按 I/O 预算删除
+     */
+    public List<BlobStore.Blob> listExpiredFiles(int hours) {
+        try {
+            return blobStore.listExpired(clock.instant().minus(Duration.ofHours(hours)));
         } catch (IOException e) {
-            log.error("清理过期文件失败", e);
+            log.error("列出过期文件失败", e);
+            return List.of();
         }
-        return deletedCount.get();
     }
-}
\ No newline at end of file
+
+    /**
+     * 文件读取租约，关闭可重复调用
+     */
+    public interface ReadLease extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
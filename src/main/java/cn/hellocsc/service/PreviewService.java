@@ -0,0 +1,297 @@
+package cn.hellocsc.service;
+
+import cn.hellocsc.metrics.AppMetrics;
+import cn.hellocsc.model.ShareContent;
+import cn.hellocsc.model.SharedFile;
+import cn.hellocsc.storage.BlobStore;
+import cn.hellocsc.storage.ShareRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 预览图生成
+ * 文件分享保存后提交到有界的后台线程池，生成图片缩略图、PDF 首页或视频截帧（JPEG），
+ * 与源文件一起存放在文件存储中，并记录到分享元数据；队列已满时直接放弃，不阻塞上传响应，也不占用请求线程
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PreviewService implements InitializingBean, DisposableBean {
+
+    private static final String PREVIEW_SUFFIX = ".preview.jpg";
+    private static final String PREVIEW_TYPE = "image/jpeg";
+
+    private final BlobStore blobStore;
+    private final ShareRepository shareRepository;
+    private final StorageQuotaService storageQuotaService;
+    private final AppMetrics metrics;
+
+    @Value("${app.preview.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.preview.threads:1}")
+    private int threads;
+
+    @Value("${app.preview.queue-capacity:64}")
+    private int queueCapacity;
+
+    // 预览图最长边像素数
+    @Value("${app.preview.max-dimension:480}")
+    private int maxDimension;
+
+    // 超过该像素数的图片不生成预览，避免解码耗时过长
+    @Value("${app.preview.max-pixels:100000000}")
+    private long maxPixels;
+
+    @Value("${app.preview.timeout:30s}")
+    private Duration timeout;
+
+    // 外部工具只能处理本地文件，为空时不生成对应类型的预览
+    @Value("${app.preview.pdftoppm-path:}")
+    private String pdftoppmPath;
+
+    @Value("${app.preview.ffmpeg-path:}")
+    private String ffmpegPath;
+
+    private ThreadPoolExecutor executor;
+
+    private enum Kind {
+        IMAGE, PDF, VIDEO
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+            Thread thread = new Thread(r, "preview-worker");
+            thread.setDaemon(true);
+            // 预览只是锦上添花，让出 CPU 给请求线程
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 为单文件分享提交预览生成任务，不支持的类型直接忽略
+     */
+    public void submit(ShareContent share) {
+        if (!enabled || share.isMultiFile() || share.getFilePath() == null) {
+            return;
+        }
+        Kind kind = kindOf(share.getContentType(), share.getFileName());
+        if (kind == null) {
+            return;
+        }
+        String shareId = share.getShareId();
+        String key = share.getFilePath();
+        try {
+            executor.execute(() -> generate(shareId, key, kind));
+        } catch (RejectedExecutionException e) {
+            metrics.recordPreview("rejected");
+            log.debug("预览队列已满，跳过 - ID: {}", shareId);
+        }
+    }
+
+    private static Kind kindOf(String contentType, String fileName) {
+        String type = contentType != null ? contentType.toLowerCase(Locale.ROOT) : "";
+        String name = fileName != null ? fileName.toLowerCase(Locale.ROOT) : "";
+        if (type.startsWith("image/")) {
+            return Kind.IMAGE;
+        }
+        if (type.equals("application/pdf") || name.endsWith(".pdf")) {
+            return Kind.PDF;
+        }
+        if (type.startsWith("video/")) {
+            return Kind.VIDEO;
+        }
+        return null;
+    }
+
+    private void generate(String shareId, String key, Kind kind) {
+        long start = System.nanoTime();
+        try {
+            byte[] jpeg = switch (kind) {
+                case IMAGE -> renderImage(key);
+                case PDF -> runTool(pdftoppmPath, key, (source, dir) -> List.of(pdftoppmPath, "-jpeg",
+                        "-f", "1", "-l", "1", "-scale-to", String.valueOf(maxDimension), "-singlefile",
+                        source.toString(), dir.resolve("preview").toString()));
+                case VIDEO -> runTool(ffmpegPath, key, (source, dir) -> List.of(ffmpegPath, "-v", "error",
+                        "-i", source.toString(), "-frames:v", "1",
+                        "-vf", "thumbnail,scale=w='min(" + maxDimension + ",iw)':h='min(" + maxDimension
+                                + ",ih)':force_original_aspect_ratio=decrease",
+                        "-y", dir.resolve("preview.jpg").toString()));
+            };
+            if (jpeg == null) {
+                metrics.recordPreview("skipped");
+                return;
+            }
+            if (store(shareId, key, jpeg)) {
+                metrics.recordPreviewDuration(System.nanoTime() - start);
+                metrics.recordPreview("generated");
+                log.debug("预览已生成 - ID: {}, 大小: {} 字节", shareId, jpeg.length);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            metrics.recordPreview("failed");
+            log.warn("生成预览失败 - ID: {}, 文件: {}: {}", shareId, key, e.getMessage());
+        }
+    }
+
+    /**
+     * 按目标尺寸隔行采样解码，大图不会整幅读入内存；ImageIO 不支持的格式（如 WebP、HEIC）返回 null
+     */
+    private byte[] renderImage(String key) throws IOException {
+        try (InputStream input = blobStore.get(key);
+             ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+            Iterator<ImageReader> readers = stream != null ? ImageIO.getImageReaders(stream) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / (maxDimension * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return toJpeg(reader.read(0, param));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private byte[] toJpeg(BufferedImage source) throws IOException {
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        // JPEG 不支持透明通道，先铺白色背景
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(target, "jpg", output);
+        return output.toByteArray();
+    }
+
+    /**
+     * 调用外部工具把预览写到临时目录中的 preview.jpg；未配置工具或文件不在本地时返回 null
+     */
+    private byte[] runTool(String tool, String key, ToolCommand command) throws IOException, InterruptedException {
+        Optional<Path> source = blobStore.localPath(key);
+        if (tool.isBlank() || source.isEmpty()) {
+            return null;
+        }
+        Path dir = Files.createTempDirectory("flashshare-preview");
+        try {
+            Process process = new ProcessBuilder(command.build(source.get(), dir))
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("预览工具执行超时: " + tool);
+            }
+            if (process.exitValue() != 0) {
+                throw new IOException("预览工具退出码 " + process.exitValue() + ": " + tool);
+            }
+            Path output = dir.resolve("preview.jpg");
+            return Files.exists(output) ? Files.readAllBytes(output) : null;
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : files.toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    /**
+     * 预览与源文件放在一起并计入配额；生成期间分享已被删除时丢弃
+     */
+    private boolean store(String shareId, String key, byte[] jpeg) throws IOException {
+        if (!storageQuotaService.tryReserve(jpeg.length)) {
+            metrics.recordPreview("skipped");
+            return false;
+        }
+        String previewKey = key + PREVIEW_SUFFIX;
+        try {
+            blobStore.put(previewKey, new ByteArrayInputStream(jpeg), jpeg.length, PREVIEW_TYPE);
+        } catch (IOException | RuntimeException e) {
+            storageQuotaService.release(jpeg.length);
+            throw e;
+        }
+
+        SharedFile preview = new SharedFile();
+        preview.setName("preview.jpg");
+        preview.setContentType(PREVIEW_TYPE);
+        preview.setSize(jpeg.length);
+        preview.setFilePath(previewKey);
+        // 条件更新：与删除互斥，生成期间被删除的分享不会被写回
+        Optional<ShareContent> updated = shareRepository.computeIfPresent(shareId, share -> {
+            if (!key.equals(share.getFilePath())) {
+                return null;
+            }
+            share.setPreview(preview);
+            return share;
+        });
+        if (updated.isEmpty()) {
+            blobStore.delete(previewKey);
+            storageQuotaService.release(jpeg.length);
+            return false;
+        }
+        return true;
+    }
+
+    @FunctionalInterface
+    private interface ToolCommand {
+        List<String> build(Path source, Path outputDir);
+    }
+}
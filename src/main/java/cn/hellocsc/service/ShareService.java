@@ -2,44 +2,186 @@ package cn.hellocsc.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import cn.hellocsc.exception.PayloadTooLargeException;
+import cn.hellocsc.exception.ShareIdUnavailableException;
 import cn.hellocsc.exception.ShareNotFoundException;
+import cn.hellocsc.metrics.AppMetrics;
+import cn.hellocsc.metrics.RequestTrace;
 import cn.hellocsc.model.ShareContent;
-import cn.hellocsc.storage.PersistentTextStorage;
+import cn.hellocsc.model.SharedFile;
+import cn.hellocsc.storage.ShareRepository;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Clock;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ShareService {
 
-    private final PersistentTextStorage persistentTextStorage;
+    private final ShareRepository shareRepository;
     private final FileStorageService fileStorageService;
+    private final StorageQuotaService storageQuotaService;
+    private final PreviewService previewService;
+    private final TextCompressor textCompressor;
+    private final AppMetrics metrics;
+    private final Clock clock;
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    private static final int SHARE_ID_LENGTH = 4;
+    private static final int FALLBACK_SHARE_ID_LENGTH = 6;
+
+    // 多文件分享的最大文件数
+    @Value("${app.multi-file.max-files:1000}")
+    private int maxFilesPerShare;
+
+    // 文本分享的最大字节数 (UTF-8)
+    @Value("${app.text.max-bytes:52428800}")
+    private long maxTextBytes;
 
     public ShareContent createTextShare(ShareContent request) {
         if (request.getTextContent() == null || request.getTextContent().isEmpty()) {
             throw new IllegalArgumentException("文本内容不能为空");
         }
+        String text = request.getTextContent();
+        long bytes = utf8Length(text);
+        if (bytes > maxTextBytes) {
+            throw new PayloadTooLargeException(String.format("文本内容超过 %d 字节限制", maxTextBytes));
+        }
 
-        String shareId = generateShareId();
-        request.setShareId(shareId);
         request.setFile(false);
-        request.setCreateTime(LocalDateTime.now());
+        request.setSize(bytes);
+        request.setCharCount(text.codePointCount(0, text.length()));
+        storeText(request, text, bytes);
+        request.setFilePath(null);
+        request.setFiles(null);
+        request.setPreview(null);
+        request.setCreateTime(LocalDateTime.now(clock));
         request.setViewCount(0);
+        issueOwnerToken(request);
 
-        persistentTextStorage.save(request);
+        long start = RequestTrace.begin();
+        insertShare(request);
+        RequestTrace.end(RequestTrace.META_SAVE, start);
 
-        log.info("创建文本分享成功 - ID: {}, 大小: {} 字符", shareId, request.getTextContent().length());
+        log.info("创建文本分享成功 - ID: {}, 大小: {} 字符{}", request.getShareId(), text.length(),
+                request.getTextGzip() != null ? "，压缩后 " + request.getTextGzip().length + " 字节" : "");
         return request;
     }
 
+    /**
+     * 批量创建文本分享：整批先校验，ID 一次分配，元数据一次写入仓库；任一条无效时整批拒绝
+     */
+    public List<ShareContent> createTextShares(List<ShareContent> requests) {
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("批量请求不能为空");
+        }
+        long[] sizes = new long[requests.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            String text = requests.get(i).getTextContent();
+            if (text == null || text.isEmpty()) {
+                throw new IllegalArgumentException(String.format("第 %d 条：文本内容不能为空", i + 1));
+            }
+            sizes[i] = utf8Length(text);
+            if (sizes[i] > maxTextBytes) {
+                throw new PayloadTooLargeException(String.format("第 %d 条：文本内容超过 %d 字节限制", i + 1, maxTextBytes));
+            }
+        }
+
+        long start = RequestTrace.begin();
+        List<String> shareIds = generateShareIds(requests.size());
+        RequestTrace.end(RequestTrace.ID_ALLOC, start);
+        LocalDateTime now = LocalDateTime.now(clock);
+        for (int i = 0; i < requests.size(); i++) {
+            ShareContent request = requests.get(i);
+            String text = request.getTextContent();
+            request.setShareId(shareIds.get(i));
+            request.setFile(false);
+            request.setSize(sizes[i]);
+            request.setCharCount(text.codePointCount(0, text.length()));
+            storeText(request, text, sizes[i]);
+            request.setFilePath(null);
+            request.setFiles(null);
+            request.setPreview(null);
+            request.setCreateTime(now);
+            request.setViewCount(0);
+            issueOwnerToken(request);
+        }
+
+        start = RequestTrace.begin();
+        // 候选 ID 只是预先剔除了已占用的，写入时仍可能与并发创建冲突，冲突的逐条换 ID 重新写入
+        for (ShareContent conflict : shareRepository.saveAllIfAbsent(requests)) {
+            metrics.recordIdRetry();
+            insertShare(conflict);
+        }
+        RequestTrace.end(RequestTrace.META_SAVE, start);
+
+        log.info("批量创建文本分享成功 - 数量: {}", requests.size());
+        return requests;
+    }
+
+    /**
+     * 流式创建文本分享：内容直接写入文件存储，元数据中只保留大小和字符数
+     */
+    public ShareContent createStreamingTextShare(InputStream content, long contentLength, String contentType,
+                                                 boolean richText) throws IOException {
+        ShareContent share = new ShareContent();
+        share.setFile(false);
+        share.setContentType(contentType);
+        share.setRichText(richText);
+        share.setCreateTime(LocalDateTime.now(clock));
+        share.setViewCount(0);
+        issueOwnerToken(share);
+
+        if (storageQuotaService.isEvictOldest() && storageQuotaService.getHeadroom() < contentLength) {
+            evictOldestShares(contentLength);
+        }
+
+        metrics.uploadStarted();
+        try {
+            fileStorageService.saveText(content, contentLength, maxTextBytes, share);
+        } catch (IOException | RuntimeException e) {
+            metrics.uploadFinished(0);
+            throw e;
+        }
+        metrics.uploadFinished(share.getSize());
+        insertShare(share);
+
+        log.info("创建文本分享成功 (Stream) - ID: {}, 大小: {} 字节, {} 字符",
+                share.getShareId(), share.getSize(), share.getCharCount());
+        return share;
+    }
+
     public ShareContent createFileShare(MultipartFile file, ShareContent request) throws IOException {
         if (file == null || file.isEmpty()) {
             throw new IllegalArgumentException("文件不能为空");
@@ -47,13 +189,34 @@ public class ShareService {
 
         ShareContent share = new ShareContent();
         share.setFile(true);
-        share.setShareId(generateShareId());
-        share.setCreateTime(LocalDateTime.now());
+        share.setCreateTime(LocalDateTime.now(clock));
         share.setViewCount(0);
         share.setRichText(request.isRichText());
+        issueOwnerToken(share);
 
-        ShareContent savedShare = fileStorageService.saveFile(file, share);
-        persistentTextStorage.save(savedShare);
+        // 空间不足且允许淘汰时，先提前清理最早的分享
+        if (storageQuotaService.isEvictOldest() && storageQuotaService.getHeadroom() < file.getSize()) {
+            evictOldestShares(file.getSize());
+        }
+
+        long fileSize = file.getSize();
+        metrics.uploadStarted();
+        ShareContent savedShare;
+        long start = RequestTrace.begin();
+        try {
+            savedShare = fileStorageService.saveFile(file, share);
+        } catch (IOException | RuntimeException e) {
+            metrics.uploadFinished(0);
+            throw e;
+        } finally {
+            RequestTrace.end(RequestTrace.STORE, start);
+        }
+        metrics.uploadFinished(fileSize);
+        start = RequestTrace.begin();
+        insertShare(savedShare);
+        RequestTrace.end(RequestTrace.META_SAVE, start);
+        // 预览在后台生成，完成后写回元数据
+        previewService.submit(savedShare);
 
         log.info("创建文件分享成功 - ID: {}, 文件名: {}, 大小: {} 字节",
                 savedShare.getShareId(), savedShare.getFileName(), savedShare.getSize());
@@ -61,85 +224,495 @@ public class ShareService {
         return savedShare;
     }
 
+    /**
+     * 创建多文件分享：各文件单独存储，下载时按需打包为 ZIP
+     *
+     * @param name 压缩包名称（不含扩展名），为空时按分享码生成
+     */
+    public ShareContent createMultiFileShare(MultipartFile[] files, String name) throws IOException {
+        if (files == null || files.length == 0) {
+            throw new IllegalArgumentException("文件不能为空");
+        }
+        if (files.length > maxFilesPerShare) {
+            throw new IllegalArgumentException(String.format("单个分享最多 %d 个文件", maxFilesPerShare));
+        }
+
+        ShareContent share = new ShareContent();
+        share.setFile(true);
+        share.setCreateTime(LocalDateTime.now(clock));
+        share.setViewCount(0);
+        share.setContentType("application/zip");
+        issueOwnerToken(share);
+        String archiveName = sanitizeEntryName(name);
+        if (archiveName != null) {
+            archiveName = archiveName.replace('/', '_');
+            share.setFileName(archiveName.toLowerCase(Locale.ROOT).endsWith(".zip") ? archiveName : archiveName + ".zip");
+        }
+
+        long totalSize = 0;
+        for (MultipartFile file : files) {
+            totalSize += file.getSize();
+        }
+        if (storageQuotaService.isEvictOldest() && storageQuotaService.getHeadroom() < totalSize) {
+            evictOldestShares(totalSize);
+        }
+
+        List<SharedFile> saved = new ArrayList<>(files.length);
+        Set<String> usedNames = new HashSet<>();
+        metrics.uploadStarted();
+        try {
+            for (int i = 0; i < files.length; i++) {
+                String entryName = uniqueEntryName(sanitizeEntryName(files[i].getOriginalFilename()), i, usedNames);
+                saved.add(fileStorageService.saveEntry(files[i], entryName));
+            }
+        } catch (IOException | RuntimeException e) {
+            // 已保存的文件一并删除，不留下不完整的分享
+            saved.forEach(entry -> fileStorageService.deleteFile(entry.getFilePath()));
+            metrics.uploadFinished(0);
+            throw e;
+        }
+        metrics.uploadFinished(totalSize);
+
+        share.setSize(totalSize);
+        share.setFiles(saved);
+        // 未指定名称时压缩包按最终分配到的分享码命名
+        if (archiveName != null) {
+            insertShare(share);
+        } else {
+            insertShare(share, assigned -> assigned.setFileName("share-" + assigned.getShareId() + ".zip"));
+        }
+
+        log.info("创建多文件分享成功 - ID: {}, 文件数: {}, 大小: {} 字节",
+                share.getShareId(), saved.size(), totalSize);
+        return share;
+    }
+
+    /**
+     * 多文件分享中的单个文件，按单文件分享的形式返回，以便沿用零拷贝下载
+     */
+    public ShareContent getSharedFile(ShareContent share, int index) {
+        if (!share.isMultiFile()) {
+            throw new IllegalArgumentException("分享内容不是多文件分享");
+        }
+        if (index < 0 || index >= share.getFiles().size()) {
+            throw new IllegalArgumentException("文件序号无效");
+        }
+        SharedFile file = share.getFiles().get(index);
+        ShareContent single = new ShareContent();
+        single.setShareId(share.getShareId());
+        single.setFile(true);
+        single.setFileName(file.getName().substring(file.getName().lastIndexOf('/') + 1));
+        single.setContentType(file.getContentType());
+        single.setSize(file.getSize());
+        single.setFilePath(file.getFilePath());
+        single.setCreateTime(share.getCreateTime());
+        return single;
+    }
+
+    // 清理压缩包内路径：统一分隔符，去掉空段、"." 和 ".."，不允许绝对路径和控制字符
+    private static String sanitizeEntryName(String name) {
+        if (name == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String segment : name.replace('\\', '/').split("/")) {
+            String cleaned = segment.replaceAll("\\p{Cntrl}", "").strip();
+            if (cleaned.isEmpty() || cleaned.equals(".") || cleaned.equals("..")) {
+                continue;
+            }
+            if (!sb.isEmpty()) {
+                sb.append('/');
+            }
+            sb.append(cleaned);
+        }
+        return sb.isEmpty() ? null : sb.toString();
+    }
+
+    // 同名文件追加序号；按不区分大小写判断，避免在 Windows/macOS 上解压时互相覆盖
+    private static String uniqueEntryName(String name, int index, Set<String> usedNames) {
+        String base = name != null ? name : "file-" + (index + 1);
+        String candidate = base;
+        int dot = base.lastIndexOf('.');
+        if (dot <= base.lastIndexOf('/') + 1) {
+            dot = base.length();
+        }
+        for (int n = 2; !usedNames.add(candidate.toLowerCase(Locale.ROOT)); n++) {
+            candidate = base.substring(0, dot) + " (" + n + ")" + base.substring(dot);
+        }
+        return candidate;
+    }
+
     public ShareContent getShareContent(String shareId) {
-        Optional<ShareContent> shareOpt = persistentTextStorage.get(shareId);
+        long start = RequestTrace.begin();
+        Optional<ShareContent> shareOpt = shareRepository.get(shareId);
+        RequestTrace.end(RequestTrace.META_GET, start);
 
         if (shareOpt.isPresent()) {
             ShareContent share = shareOpt.get();
             validateShareAccess(share);
 
-            // 简单的计数器更新（非线程安全但足够用）
-            share.setViewCount(share.getViewCount() + 1);
-
-            if (share.isFile() && share.getFilePath() != null) {
-                Path filePath = fileStorageService.getFile(share.getFilePath());
-                if (!Files.exists(filePath)) {
-                    persistentTextStorage.invalidate(shareId);
+            // 多文件分享不逐个检查（对象存储上每个文件一次请求），缺失的文件在下载时报错，并由一致性扫描清理
+            if (share.getFilePath() != null) {
+                start = RequestTrace.begin();
+                boolean exists = fileStorageService.exists(share.getFilePath());
+                RequestTrace.end(RequestTrace.FILE_CHECK, start);
+                if (!exists) {
+                    shareRepository.invalidate(shareId);
                     throw new ShareNotFoundException("文件不存在或已被删除");
                 }
             }
 
-            persistentTextStorage.save(share);
-            return share;
+            // 在仓库内原子地加一：不会复活期间被删除的分享，也不会覆盖后台写回的预览等字段
+            start = RequestTrace.begin();
+            Optional<ShareContent> updated = shareRepository.computeIfPresent(shareId, current -> {
+                current.setViewCount(current.getViewCount() + 1);
+                return current;
+            });
+            RequestTrace.end(RequestTrace.META_SAVE, start);
+            return updated.orElseThrow(() -> new ShareNotFoundException("分享内容不存在或已过期"));
         }
 
         throw new ShareNotFoundException("分享内容不存在或已过期");
     }
 
-    public Path getFileForDownload(ShareContent share) {
+    /**
+     * 批量查询分享元数据：一次读取仓库，不计入查看次数，不存在或已过期的 ID 不出现在结果中
+     */
+    public Map<String, ShareContent> lookupShares(Collection<String> shareIds) {
+        Map<String, ShareContent> shares = new HashMap<>(shareRepository.getAll(shareIds));
+        shares.values().removeIf(this::isExpired);
+        return shares;
+    }
+
+    /**
+     * 所有者删除分享：元数据立即失效并落盘，文件立即删除并释放配额；仍在下载的文件等下载结束后再删除
+     */
+    public void deleteShare(String shareId, String ownerToken) {
+        ShareContent share = shareRepository.get(shareId)
+                .orElseThrow(() -> new ShareNotFoundException("分享内容不存在或已过期"));
+        validateShareAccess(share);
+        // 升级前创建的分享没有删除令牌，只能等待过期
+        if (ownerToken == null || share.getOwnerTokenHash() == null || !MessageDigest.isEqual(
+                sha256Hex(ownerToken).getBytes(StandardCharsets.US_ASCII),
+                share.getOwnerTokenHash().getBytes(StandardCharsets.US_ASCII))) {
+            throw new SecurityException("删除令牌无效");
+        }
+
+        shareRepository.delete(shareId);
+        long freed = 0;
+        for (SharedFile file : share.storedFiles()) {
+            freed += fileStorageService.deleteWhenIdle(file.getFilePath());
+        }
+        log.info("所有者删除分享 - ID: {}, 立即释放: {} 字节", shareId, freed);
+    }
+
+    /**
+     * 下载期间持有的读取租约，所有者删除分享时文件推迟到租约关闭后再删除
+     */
+    public FileStorageService.ReadLease acquireRead(ShareContent share) {
+        return fileStorageService.acquireRead(share.storedFiles().stream().map(SharedFile::getFilePath).toList());
+    }
+
+    /**
+     * 获取已生成预览的分享（不计入查看次数），预览尚未生成或不支持时按不存在处理
+     */
+    public SharedFile getPreview(String shareId) {
+        ShareContent share = shareRepository.get(shareId)
+                .orElseThrow(() -> new ShareNotFoundException("分享内容不存在或已过期"));
+        validateShareAccess(share);
+        if (share.getPreview() == null) {
+            throw new ShareNotFoundException("预览不存在");
+        }
+        return share.getPreview();
+    }
+
+    /**
+     * 预览图较小，优先从小文件缓存读取，未命中返回空，由调用方改用 {@link #openPreview}
+     */
+    public Optional<ByteBuffer> getCachedPreview(SharedFile preview) {
+        return fileStorageService.getCachedFile(preview.getFilePath(), preview.getSize());
+    }
+
+    public InputStream openPreview(SharedFile preview) throws IOException {
+        try {
+            return fileStorageService.openFile(preview.getFilePath());
+        } catch (NoSuchFileException e) {
+            throw new ShareNotFoundException("预览不存在");
+        }
+    }
+
+    /**
+     * 本地存储时返回磁盘文件（用于零拷贝），对象存储返回空，由调用方改用 {@link #openFile}
+     */
+    public Optional<Path> getLocalFile(ShareContent share) {
+        checkFileShare(share);
+        Optional<Path> filePath = fileStorageService.getLocalFile(share.getFilePath());
+        long start = RequestTrace.begin();
+        boolean missing = filePath.isPresent() && !Files.exists(filePath.get());
+        RequestTrace.end(RequestTrace.FILE_CHECK, start);
+        if (missing) {
+            throw new ShareNotFoundException("文件不存在或已被删除");
+        }
+        return filePath;
+    }
+
+    public InputStream openFile(ShareContent share) throws IOException {
+        checkFileShare(share);
+        return openStored(share);
+    }
+
+    /**
+     * 获取文本分享（不计入查看次数），流式上传的文本内容需再通过 {@link #openText} 读取
+     */
+    public ShareContent getTextShare(String shareId) {
+        ShareContent share = shareRepository.get(shareId)
+                .orElseThrow(() -> new ShareNotFoundException("分享内容不存在或已过期"));
+        validateShareAccess(share);
+        if (share.isFile()) {
+            throw new IllegalArgumentException("分享内容不是文本");
+        }
+        return share;
+    }
+
+    public InputStream openText(ShareContent share) throws IOException {
+        if (share.isFile() || share.getFilePath() == null) {
+            throw new IllegalArgumentException("无效的文本分享");
+        }
+        return openStored(share);
+    }
+
+    /**
+     * JSON 接口返回完整文本：压缩存储的文本解压到副本中，缓存中的记录保持压缩
+     */
+    public ShareContent withTextContent(ShareContent share) {
+        if (share.getTextGzip() == null) {
+            return share;
+        }
+        ShareContent copy = new ShareContent();
+        BeanUtils.copyProperties(share, copy);
+        copy.setTextContent(textCompressor.decompress(share.getTextGzip()));
+        return copy;
+    }
+
+    public InputStream openCompressedText(ShareContent share) throws IOException {
+        return textCompressor.open(share.getTextGzip());
+    }
+
+    private InputStream openStored(ShareContent share) throws IOException {
+        try {
+            return fileStorageService.openFile(share.getFilePath());
+        } catch (NoSuchFileException e) {
+            throw new ShareNotFoundException("文件不存在或已被删除");
+        }
+    }
+
+    private void checkFileShare(ShareContent share) {
         if (!share.isFile() || share.getFilePath() == null) {
             throw new IllegalArgumentException("无效的文件分享");
         }
+    }
 
-        Path filePath = fileStorageService.getFile(share.getFilePath());
-        if (!Files.exists(filePath)) {
-            throw new ShareNotFoundException("文件不存在或已被删除");
+    /**
+     * 小文件直接从内存层读取，未命中返回空，由调用方回退到磁盘（热点文件已预热页缓存，仍走零拷贝）
+     */
+    public Optional<ByteBuffer> getCachedFile(ShareContent share) {
+        if (!share.isFile() || share.getFilePath() == null) {
+            return Optional.empty();
         }
+        return fileStorageService.getCachedFile(share.getFilePath(), share.getSize());
+    }
 
-        return filePath;
+    // 执行清理任务：过期文件由 ReclaimExecutor 在后台按 I/O 预算删除，这里只触发元数据缓存的清理
+    public void cleanupExpiredShares() {
+        shareRepository.cleanUp();
+    }
+
+    /**
+     * 当前内联文本分享的压缩情况（管理接口使用，会遍历所有记录）
+     * 字节数按 UTF-8 计，未压缩文本在堆中的实际占用取决于字符串编码
+     */
+    public Map<String, Object> textCompressionStats() {
+        long textShares = 0;
+        long compressedShares = 0;
+        long rawBytes = 0;
+        long storedBytes = 0;
+        for (ShareContent share : shareRepository.listAll()) {
+            if (share.isFile() || share.getFilePath() != null) {
+                continue;
+            }
+            textShares++;
+            rawBytes += share.getSize();
+            if (share.getTextGzip() != null) {
+                compressedShares++;
+                storedBytes += share.getTextGzip().length;
+            } else {
+                storedBytes += share.getSize();
+            }
+        }
+        return Map.of(
+                "textShares", textShares,
+                "compressedShares", compressedShares,
+                "rawBytes", rawBytes,
+                "storedBytes", storedBytes,
+                "savedBytes", rawBytes - storedBytes
+        );
     }
 
-    // 执行清理任务
-    public int cleanupExpiredShares() {
-        // 1. 清理磁盘上的物理文件 (保留24小时内的文件)
-        int cleanedFiles = fileStorageService.deleteExpiredFiles(24);
+    /**
+     * 按创建时间从早到晚淘汰文件分享，直到剩余空间足够
+     */
+    private void evictOldestShares(long requiredBytes) {
+        if (requiredBytes > storageQuotaService.getMaxSize()) {
+            // 即使清空所有分享也放不下，没有必要淘汰
+            return;
+        }
 
-        // 2. 触发缓存的清理
-        persistentTextStorage.cleanUp();
+        List<ShareContent> candidates = shareRepository.listAll().stream()
+                .filter(share -> !share.storedFiles().isEmpty() && share.getCreateTime() != null)
+                .sorted(Comparator.comparing(ShareContent::getCreateTime))
+                .toList();
+
+        for (ShareContent share : candidates) {
+            if (storageQuotaService.getHeadroom() >= requiredBytes) {
+                break;
+            }
+            // 与所有者删除相同：元数据立即落盘，仍在下载的文件等下载结束后再删除，期间不计入释放的空间
+            shareRepository.delete(share.getShareId());
+            long freed = 0;
+            for (SharedFile file : share.storedFiles()) {
+                freed += fileStorageService.deleteWhenIdle(file.getFilePath());
+            }
+            log.info("存储空间不足，提前淘汰分享 - ID: {}, 立即释放: {} 字节", share.getShareId(), freed);
+        }
+    }
 
-        if (cleanedFiles > 0) {
-            log.info("执行清理任务：物理删除了 {} 个过期文件", cleanedFiles);
+    // 值得压缩的文本只保存 gzip 结果，不再保留原始字符串
+    private void storeText(ShareContent share, String text, long utf8Length) {
+        byte[] compressed = textCompressor.compress(text, utf8Length);
+        share.setTextGzip(compressed);
+        if (compressed != null) {
+            share.setTextContent(null);
         }
-        return cleanedFiles;
+    }
+
+    // 生成所有者删除令牌：分享中只保存 SHA-256，明文只在创建响应中返回一次
+    private static void issueOwnerToken(ShareContent share) {
+        byte[] bytes = new byte[24];
+        SECURE_RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        share.setOwnerToken(token);
+        share.setOwnerTokenHash(sha256Hex(token));
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    // 按 UTF-8 编码计算字节数，不复制字符串
+    private static long utf8Length(String text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
     }
 
     private void validateShareAccess(ShareContent share) {
-        LocalDateTime expiryTime = share.getCreateTime().plusHours(24);
-        if (LocalDateTime.now().isAfter(expiryTime)) {
+        if (isExpired(share)) {
             throw new ShareNotFoundException("分享已过期");
         }
     }
 
-    // 生成 ID (改进版：6位数字字母组合)
-    private String generateShareId() {
-        // 去除容易混淆的字符 (0, O, 1, I)
-        String chars = "0123456789";
-        int length = 4;
-        StringBuilder sb = new StringBuilder();
+    private boolean isExpired(ShareContent share) {
+        LocalDateTime expiryTime = share.getCreateTime().plusHours(24);
+        return LocalDateTime.now(clock).isAfter(expiryTime);
+    }
+
+    void insertShare(ShareContent share) {
+        insertShare(share, assigned -> { });
+    }
+
+    /**
+     * 分配 ID 并写入新分享：4 位数字，由仓库原子地判断是否占用，冲突时换 ID 重试；4 位空间接近占满时改用 6 位，
+     * 仍然冲突时拒绝创建，不覆盖已有分享（包括并发创建中抽到同一 ID 的）
+     *
+     * @param onShareId 每次分配 ID 后、写入前调用，用于设置依赖分享码的字段
+     */
+    void insertShare(ShareContent share, Consumer<ShareContent> onShareId) {
+        for (int length : new int[]{SHARE_ID_LENGTH, FALLBACK_SHARE_ID_LENGTH}) {
+            if (length == FALLBACK_SHARE_ID_LENGTH) {
+                metrics.recordIdFallback();
+            }
+            for (int retry = 0; retry < 5; retry++) {
+                share.setShareId(randomShareId(length));
+                onShareId.accept(share);
+                if (shareRepository.saveIfAbsent(share)) {
+                    return;
+                }
+                metrics.recordIdRetry();
+            }
+        }
+        throw new ShareIdUnavailableException("暂时无法分配分享码，请稍后再试");
+    }
 
-        // 尝试生成唯一ID，最多重试5次
-        for (int retry = 0; retry < 5; retry++) {
-            sb.setLength(0);
-            for (int i = 0; i < length; i++) {
-                int index = ThreadLocalRandom.current().nextInt(chars.length());
-                sb.append(chars.charAt(index));
+    /**
+     * 批量生成候选 ID：每轮生成所有缺少的候选 ID，用一次批量查询剔除已占用的，4 位和 6 位各最多 5 轮；
+     * 写入时仍需 {@link ShareRepository#saveAllIfAbsent} 处理并发创建的冲突
+     */
+    List<String> generateShareIds(int count) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (int length : new int[]{SHARE_ID_LENGTH, FALLBACK_SHARE_ID_LENGTH}) {
+            if (length == FALLBACK_SHARE_ID_LENGTH && ids.size() < count) {
+                metrics.recordIdFallback();
             }
-            String id = sb.toString();
-            if (!persistentTextStorage.get(id).isPresent()) {
-                return id;
+            for (int round = 0; round < 5 && ids.size() < count; round++) {
+                Set<String> candidates = new LinkedHashSet<>();
+                // 空间剩余不足时一轮可能凑不齐，不在这里死循环
+                for (int attempt = 0; candidates.size() < count - ids.size() && attempt < count * 4; attempt++) {
+                    String id = randomShareId(length);
+                    if (!ids.contains(id)) {
+                        candidates.add(id);
+                    }
+                }
+                Set<String> taken = shareRepository.getAll(candidates).keySet();
+                for (String id : candidates) {
+                    if (taken.contains(id)) {
+                        metrics.recordIdRetry();
+                    } else {
+                        ids.add(id);
+                    }
+                }
             }
         }
-        // 如果极低概率下失败，退回到时间戳+随机数
-        return String.valueOf(System.currentTimeMillis() % 1000000);
+        if (ids.size() < count) {
+            throw new ShareIdUnavailableException("暂时无法分配分享码，请稍后再试");
+        }
+        return new ArrayList<>(ids);
+    }
+
+    private static String randomShareId(int length) {
+        String chars = "0123456789";
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            int index = ThreadLocalRandom.current().nextInt(chars.length());
+            sb.append(chars.charAt(index));
+        }
+        return sb.toString();
     }
 }
\ No newline at end of file
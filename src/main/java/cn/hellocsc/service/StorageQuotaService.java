@@ -0,0 +1,87 @@
+package cn.hellocsc.service;
+
+import cn.hellocsc.storage.BlobStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 磁盘配额管理
+ * 启动时按文件存储的实际占用初始化（包括孤儿文件和中断上传的临时文件），
+ * 之后在保存/删除文件时增量维护已用字节数，不再扫描存储目录
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StorageQuotaService implements InitializingBean {
+
+    private final BlobStore blobStore;
+
+    @Value("${storage.max-size:524288000}")
+    private long maxSize;
+
+    // 空间不足时是否提前淘汰最早的分享
+    @Value("${storage.evict-oldest:false}")
+    private boolean evictOldest;
+
+    // 当前已占用的字节数
+    private final AtomicLong usedBytes = new AtomicLong(0);
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        // 元数据只记录仍有效的分享，孤儿文件和临时文件同样占用磁盘，按实际列表计算
+        long total = 0;
+        int count = 0;
+        for (BlobStore.Blob blob : blobStore.listAll()) {
+            total += blob.size();
+            count++;
+        }
+        usedBytes.set(total);
+        log.info("磁盘配额初始化完成 - 文件: {}, 已用: {} 字节, 上限: {} 字节", count, total, maxSize);
+    }
+
+    /**
+     * 尝试预留空间，超出上限时返回 false
+     */
+    public boolean tryReserve(long bytes) {
+        while (true) {
+            long current = usedBytes.get();
+            long next = current + bytes;
+            if (next > maxSize) {
+                return false;
+            }
+            if (usedBytes.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 释放空间（文件删除或保存失败时调用）
+     */
+    public void release(long bytes) {
+        // 初始化之后、首次列表之前发生的删除可能重复释放，不能减到负数
+        usedBytes.updateAndGet(current -> Math.max(0, current - bytes));
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHeadroom() {
+        return Math.max(0, maxSize - usedBytes.get());
+    }
+
+    public boolean isEvictOldest() {
+        return evictOldest;
+    }
+}
@@ -0,0 +1,92 @@
+package cn.hellocsc.service;
+
+import cn.hellocsc.metrics.AppMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 文本压缩存储
+ * 内联文本以 gzip 格式保存在元数据中（内存缓存和快照文件），下载时可以原样作为 Content-Encoding: gzip 返回；
+ * 过小或压缩效果不明显的文本保持原样
+ */
+@Component
+@RequiredArgsConstructor
+public class TextCompressor {
+
+    private final AppMetrics metrics;
+
+    @Value("${app.text.compression.enabled:true}")
+    private boolean enabled;
+
+    // 小于该字节数的文本不压缩，gzip 头尾和 Base64 开销抵消收益
+    @Value("${app.text.compression.min-bytes:1024}")
+    private long minBytes;
+
+    @Value("${app.text.compression.level:6}")
+    private int level;
+
+    // 压缩后至少节省该比例才保存压缩结果
+    @Value("${app.text.compression.min-saving:0.1}")
+    private double minSaving;
+
+    /**
+     * 压缩文本，不值得压缩时返回 null
+     *
+     * @param utf8Length 文本的 UTF-8 字节数
+     */
+    public byte[] compress(String text, long utf8Length) {
+        if (!enabled || utf8Length < minBytes) {
+            return null;
+        }
+        long start = System.nanoTime();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream((int) Math.min(utf8Length / 4 + 64, Integer.MAX_VALUE));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer, 8192) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // 写入内存缓冲区不会失败
+            throw new UncheckedIOException(e);
+        }
+        byte[] compressed = buffer.toByteArray();
+        metrics.recordTextCompress(System.nanoTime() - start);
+        if (compressed.length > utf8Length * (1 - minSaving)) {
+            return null;
+        }
+        metrics.recordTextCompressed(utf8Length, compressed.length);
+        return compressed;
+    }
+
+    /**
+     * 流式解压，供不接受 gzip 的客户端使用
+     */
+    public InputStream open(byte[] compressed) throws IOException {
+        return new GZIPInputStream(new ByteArrayInputStream(compressed), 8192);
+    }
+
+    /**
+     * 解压为字符串（JSON 接口返回完整文本时使用）
+     */
+    public String decompress(byte[] compressed) {
+        long start = System.nanoTime();
+        try (InputStream input = open(compressed)) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("文本解压失败", e);
+        } finally {
+            metrics.recordTextDecompress(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package cn.hellocsc.service;
+
+import cn.hellocsc.exception.PayloadTooLargeException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 文本上传流：边读边统计字节数和字符数（按 UTF-8 编码），超过上限时立即中止
+ */
+class TextIngestInputStream extends FilterInputStream {
+
+    private final long maxBytes;
+    private long bytes = 0;
+    private long chars = 0;
+
+    TextIngestInputStream(InputStream in, long maxBytes) {
+        super(in);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            count(b);
+            checkLimit();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int off, int len) throws IOException {
+        int read = super.read(buffer, off, len);
+        for (int i = off; i < off + read; i++) {
+            count(buffer[i]);
+        }
+        checkLimit();
+        return read;
+    }
+
+    @Override
+    public long skip(long n) {
+        // 跳过的内容无法统计，不支持
+        return 0;
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    long getChars() {
+        return chars;
+    }
+
+    private void count(int b) {
+        bytes++;
+        // UTF-8 后续字节形如 10xxxxxx，只统计每个字符的首字节
+        if ((b & 0xC0) != 0x80) {
+            chars++;
+        }
+    }
+
+    private void checkLimit() {
+        if (bytes > maxBytes) {
+            throw new PayloadTooLargeException(String.format("文本内容超过 %d 字节限制", maxBytes));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package cn.hellocsc.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import cn.hellocsc.model.SharedFile;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 多文件分享打包下载：逐个读取存储中的文件，边压缩边写出 ZIP，不生成临时压缩包
+ * 内存占用只有一个读缓冲区和 Deflater 的窗口，与文件数量和大小无关
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ZipArchiveStreamer {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // 已压缩的格式再压缩几乎没有收益，直接以 STORED 方式写入
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "zst", "jar", "apk",
+            "jpg", "jpeg", "png", "gif", "webp", "heic", "avif",
+            "mp3", "m4a", "aac", "ogg", "opus", "flac",
+            "mp4", "m4v", "mov", "mkv", "webm", "avi",
+            "pdf", "docx", "xlsx", "pptx");
+
+    private static final Set<String> COMPRESSED_TYPES = Set.of(
+            "application/zip", "application/gzip", "application/x-gzip", "application/x-7z-compressed",
+            "application/x-rar-compressed", "application/x-xz", "application/x-bzip2", "application/zstd",
+            "application/pdf");
+
+    private final FileStorageService fileStorageService;
+
+    /**
+     * 是否为已压缩的格式（按扩展名和 MIME 类型判断）
+     */
+    public static boolean isCompressed(String name, String contentType) {
+        if (name != null && name.lastIndexOf('.') >= 0) {
+            String extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+            if (COMPRESSED_EXTENSIONS.contains(extension)) {
+                return true;
+            }
+        }
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        if (type.startsWith("image/")) {
+            // SVG 和 BMP 是未压缩的格式
+            return !type.startsWith("image/svg") && !type.startsWith("image/bmp");
+        }
+        return type.startsWith("video/") || type.startsWith("audio/") || COMPRESSED_TYPES.contains(type);
+    }
+
+    /**
+     * 将文件依次写入 ZIP，返回写出的字节数；调用方负责关闭 output 和 flow
+     */
+    public long write(List<SharedFile> files, OutputStream output, BandwidthScheduler.Flow flow) throws IOException {
+        PacedOutputStream paced = new PacedOutputStream(output, flow);
+        // 不关闭 ZipOutputStream，避免连带关闭响应流
+        ZipOutputStream zip = new ZipOutputStream(paced, StandardCharsets.UTF_8);
+        zip.setLevel(Deflater.BEST_SPEED);
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (SharedFile file : files) {
+            ZipEntry entry = new ZipEntry(file.getName());
+            // 写入时校验大小（STORED 还会校验 CRC），文件被截断会直接报错而不是生成损坏的压缩包
+            entry.setSize(file.getSize());
+            if (file.getCrc32() != null) {
+                entry.setMethod(ZipEntry.STORED);
+                entry.setCompressedSize(file.getSize());
+                entry.setCrc(file.getCrc32());
+            } else {
+                entry.setMethod(ZipEntry.DEFLATED);
+            }
+
+            zip.putNextEntry(entry);
+            try (InputStream input = fileStorageService.openFile(file.getFilePath())) {
+                int read;
+                while ((read = input.read(buffer)) >= 0) {
+                    zip.write(buffer, 0, read);
+                }
+            }
+            zip.closeEntry();
+        }
+        zip.finish();
+        paced.flush();
+        return paced.written;
+    }
+
+    /**
+     * 按带宽调度分块写出并统计字节数；ZIP 头部的单字节写入不参与调度
+     */
+    private static final class PacedOutputStream extends FilterOutputStream {
+
+        private final BandwidthScheduler.Flow flow;
+        private long written;
+
+        PacedOutputStream(OutputStream out, BandwidthScheduler.Flow flow) {
+            super(out);
+            this.flow = flow;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            written++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int chunk = (int) flow.chunk(len);
+                flow.pace(chunk);
+                out.write(b, off, chunk);
+                off += chunk;
+                len -= chunk;
+                written += chunk;
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package cn.hellocsc.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * 文件内容存储
+ * 默认实现为本地目录 (LocalBlobStore)，可通过 storage.blob.backend 切换到 S3 兼容的对象存储
+ */
+public interface BlobStore {
+
+    /**
+     * 流式写入对象，写入完成前对象不可见
+     */
+    void put(String key, InputStream content, long size, String contentType) throws IOException;
+
+    /**
+     * 读取整个对象，调用方负责关闭
+     */
+    InputStream get(String key) throws IOException;
+
+    /**
+     * 读取 [offset, offset + length) 区间，调用方负责关闭
+     */
+    InputStream getRange(String key, long offset, long length) throws IOException;
+
+    /**
+     * 对象大小，不存在时返回空
+     */
+    OptionalLong size(String key) throws IOException;
+
+    default boolean exists(String key) throws IOException {
+        return size(key).isPresent();
+    }
+
+    /**
+     * 删除对象，返回释放的字节数，对象不存在时返回 0
+     */
+    long delete(String key) throws IOException;
+
+    /**
+     * 列出最后修改时间早于 cutOff 的对象
+     */
+    List<Blob> listExpired(Instant cutOff) throws IOException;
+
+    /**
+     * 列出所有对象，包括中断上传留下的临时文件
+     */
+    default List<Blob> listAll() throws IOException {
+        return listExpired(Instant.MAX);
+    }
+
+    /**
+     * 对象在本地文件系统上的位置（对象尚不存在时为写入位置）
+     * 只有本地存储返回值，调用方据此走 transferTo 零拷贝和内存映射
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    record Blob(String key, long size, Instant lastModified) {
+    }
+}
@@ -0,0 +1,87 @@
+package cn.hellocsc.storage;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-Min Sketch 频率估计
+ * 固定内存估算每个键的访问次数（只会高估，不会低估），支持周期性减半以衰减旧热度
+ */
+public class CountMinSketch {
+
+    private static final int DEPTH = 4;
+
+    private static final long SEED_1 = 0x9E3779B97F4A7C15L;
+    private static final long SEED_2 = 0xC2B2AE3D27D4EB4FL;
+
+    private final AtomicLongArray[] rows;
+    private final int mask;
+
+    /**
+     * @param width 每行计数器个数，会向上取整为 2 的幂
+     */
+    public CountMinSketch(int width) {
+        int size = Integer.highestOneBit(Math.max(16, width - 1) << 1);
+        this.mask = size - 1;
+        this.rows = new AtomicLongArray[DEPTH];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new AtomicLongArray(size);
+        }
+    }
+
+    /**
+     * 计数加一并返回新的估计值
+     */
+    public long add(String key) {
+        long h1 = hash(key, SEED_1);
+        long h2 = hash(key, SEED_2);
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < rows.length; i++) {
+            estimate = Math.min(estimate, rows[i].incrementAndGet(index(h1, h2, i)));
+        }
+        return estimate;
+    }
+
+    public long estimate(String key) {
+        long h1 = hash(key, SEED_1);
+        long h2 = hash(key, SEED_2);
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < rows.length; i++) {
+            estimate = Math.min(estimate, rows[i].get(index(h1, h2, i)));
+        }
+        return estimate;
+    }
+
+    /**
+     * 所有计数减半，让一段时间不再访问的键逐渐冷却
+     */
+    public void halve() {
+        for (AtomicLongArray row : rows) {
+            for (int j = 0; j < row.length(); j++) {
+                row.updateAndGet(j, value -> value >>> 1);
+            }
+        }
+    }
+
+    /**
+     * 双重哈希：两个独立的 64 位哈希组合出每一行的位置。
+     * 不能从 String.hashCode() 派生，否则 hashCode 相同的键（如 "Aa" 和 "BB"）在所有行上都冲突
+     */
+    private int index(long h1, long h2, int row) {
+        return (int) mix(h1 + row * h2) & mask;
+    }
+
+    // 带种子的 64 位 FNV-1a，按 UTF-16 字符计算，再做一次 murmur3 末尾混合
+    private static long hash(String key, long seed) {
+        long h = seed ^ 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
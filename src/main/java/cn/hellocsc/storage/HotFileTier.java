@@ -0,0 +1,259 @@
+package cn.hellocsc.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热点文件层
+ * 用 Count-Min Sketch 统计下载频率，访问次数最高的 Top-K 文件顺序读一遍预热页缓存；
+ * 下载仍走 transferTo/sendfile 从页缓存直接发送，不经过用户态缓冲区，
+ * 频率衰减时仍然保持热点的文件重新预热。
+ * 预热不保留映射或打开的文件：MappedByteBuffer 要等 GC 才解除映射，期间已删除文件的磁盘空间无法回收，
+ * 而配额在删除时就已释放
+ */
+@Slf4j
+@Component
+public class HotFileTier implements DisposableBean {
+
+    @Value("${storage.hot.enabled:true}")
+    private boolean enabled;
+
+    // 最多同时保持热点的文件数
+    @Value("${storage.hot.top-k:16}")
+    private int topK;
+
+    // 进入热点所需的最少下载次数（衰减窗口内）
+    @Value("${storage.hot.min-hits:20}")
+    private long minHits;
+
+    // 单个热点文件大小上限
+    @Value("${storage.hot.max-file-size:268435456}")
+    private long maxFileSize;
+
+    // 热点层文件的总字节数上限
+    @Value("${storage.hot.max-bytes:1073741824}")
+    private long maxBytes;
+
+    private final CountMinSketch sketch = new CountMinSketch(8192);
+
+    private final Map<String, HotFile> hotFiles = new ConcurrentHashMap<>();
+
+    // 正在提升中的文件，避免重复提交
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    // 热点层文件的总字节数（沿用早期按映射计量时的名称）
+    private final AtomicLong mappedBytes = new AtomicLong(0);
+
+    // 失效代数：每次 invalidate 加一，用于丢弃与删除并发的提升
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    // 预热读取用的缓冲区，只在 loader 线程中使用
+    private final ByteBuffer warmBuffer = ByteBuffer.allocateDirect(1 << 20);
+
+    // 预热在后台线程完成，不占用请求线程
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "hot-file-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 记录一次下载，访问频率达到阈值时在后台提升到热点层
+     *
+     * @return 文件已在热点层（页缓存已预热）
+     */
+    public boolean record(String key, Path path) {
+        if (!enabled) {
+            return false;
+        }
+        requests.increment();
+        long estimate = sketch.add(key);
+
+        HotFile hotFile = hotFiles.get(key);
+        if (hotFile != null) {
+            hits.increment();
+            hotFile.hits.increment();
+            return true;
+        }
+
+        if (estimate >= minHits && pending.add(key)) {
+            // 提交前记下失效代数，提升期间文件被删除时放弃
+            long submittedAt = generation.get();
+            loader.execute(() -> {
+                try {
+                    promote(key, path, submittedAt);
+                } finally {
+                    pending.remove(key);
+                }
+            });
+        }
+        return false;
+    }
+
+    public void invalidate(String key) {
+        // 先推进代数再移除：进行中的提升要么在移除之前完成（随后被移除），要么看到新的代数而放弃
+        generation.incrementAndGet();
+        demote(key);
+    }
+
+    /**
+     * 定期衰减频率，长时间不再访问的热点文件移出热点层
+     */
+    @Scheduled(fixedRateString = "${storage.hot.decay-interval:600000}")
+    public void decay() {
+        if (!enabled) {
+            return;
+        }
+        sketch.halve();
+        for (String key : new ArrayList<>(hotFiles.keySet())) {
+            if (sketch.estimate(key) < minHits / 2) {
+                demote(key);
+                log.debug("热点文件冷却，移出热点层: {}", key);
+            }
+        }
+        // 仍然热门的文件重新预热，期间被内核换出的页再次载入
+        List<HotFile> remaining = new ArrayList<>(hotFiles.values());
+        loader.execute(() -> remaining.forEach(file -> {
+            try {
+                warm(file.path);
+            } catch (IOException e) {
+                // 文件已被删除，随后的 invalidate 会把它移出热点层
+                log.debug("热点文件重新预热失败: {}", file.key, e);
+            }
+        }));
+    }
+
+    public List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        hotFiles.values().stream()
+                .sorted(Comparator.comparingLong((HotFile file) -> sketch.estimate(file.key)).reversed())
+                .forEach(file -> result.add(Map.of(
+                        "filePath", file.key,
+                        "size", file.size,
+                        "hits", file.hits.sum(),
+                        "estimatedFrequency", sketch.estimate(file.key)
+                )));
+        return result;
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMappedBytes() {
+        return mappedBytes.get();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public void destroy() {
+        loader.shutdownNow();
+        hotFiles.clear();
+    }
+
+    private void promote(String key, Path path, long submittedAt) {
+        if (hotFiles.containsKey(key)) {
+            return;
+        }
+        try {
+            long size = Files.size(path);
+            if (size == 0 || size > maxFileSize || size > maxBytes) {
+                return;
+            }
+
+            long estimate = sketch.estimate(key);
+            // 热点层已满时，只有比最冷的文件更热才替换
+            while (hotFiles.size() >= topK || mappedBytes.get() + size > maxBytes) {
+                Optional<HotFile> coldest = hotFiles.values().stream()
+                        .min(Comparator.comparingLong(file -> sketch.estimate(file.key)));
+                if (coldest.isEmpty() || sketch.estimate(coldest.get().key) >= estimate) {
+                    return;
+                }
+                demote(coldest.get().key);
+            }
+
+            warm(path);
+
+            boolean[] added = {false};
+            hotFiles.compute(key, (k, existing) -> {
+                if (existing != null || generation.get() != submittedAt) {
+                    return existing;
+                }
+                added[0] = true;
+                return new HotFile(key, path, size);
+            });
+            if (!added[0]) {
+                log.debug("提升期间文件已失效，放弃: {}", key);
+                return;
+            }
+            mappedBytes.addAndGet(size);
+            log.info("文件进入热点层 - 文件: {}, 大小: {}, 估计频率: {}", key, size, estimate);
+        } catch (IOException e) {
+            log.warn("热点文件映射失败: {}", key, e);
+        }
+    }
+
+    /**
+     * 顺序读完整个文件，触发内核预读并把所有页载入页缓存；读完即关闭，不延迟删除后磁盘空间的回收
+     */
+    private void warm(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(warmBuffer.clear()) >= 0) {
+                // 只需要触发读取，内容丢弃
+            }
+        }
+    }
+
+    private void demote(String key) {
+        HotFile removed = hotFiles.remove(key);
+        if (removed != null) {
+            // 不持有文件，移出后页缓存由内核按需回收
+            mappedBytes.addAndGet(-removed.size);
+        }
+    }
+
+    private static class HotFile {
+        private final String key;
+        // 只用于重新预热，不对外返回
+        private final Path path;
+        private final long size;
+        private final LongAdder hits = new LongAdder();
+
+        private HotFile(String key, Path path, long size) {
+            this.key = key;
+            this.path = path;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package cn.hellocsc.storage;
+
+import cn.hellocsc.model.ShareContent;
+import cn.hellocsc.model.SharedFile;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 旧数据路径迁移
+ * 早期版本在元数据中保存文件的绝对路径，存储层现在只接受存储目录内的相对 key；
+ * 启动时把存储目录下的绝对路径改写为相对 key 并保存，指向存储目录外的记录直接失效（不删除文件）
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "storage.blob.backend", havingValue = "local", matchIfMissing = true)
+public class LegacyPathMigration implements InitializingBean {
+
+    private final ShareRepository shareRepository;
+    private final LocalBlobStore blobStore;
+
+    @Override
+    public void afterPropertiesSet() {
+        int migrated = 0;
+        List<String> rejected = new ArrayList<>();
+        for (ShareContent share : shareRepository.listAll()) {
+            List<SharedFile> files = new ArrayList<>();
+            if (share.getFiles() != null) {
+                files.addAll(share.getFiles());
+            }
+            if (share.getPreview() != null) {
+                files.add(share.getPreview());
+            }
+            boolean changed = false;
+            boolean outside = false;
+
+            if (isAbsolute(share.getFilePath())) {
+                Optional<String> key = blobStore.relativeKey(share.getFilePath());
+                outside = key.isEmpty();
+                if (key.isPresent()) {
+                    share.setFilePath(key.get());
+                    changed = true;
+                }
+            }
+            for (SharedFile file : files) {
+                if (isAbsolute(file.getFilePath())) {
+                    Optional<String> key = blobStore.relativeKey(file.getFilePath());
+                    outside |= key.isEmpty();
+                    if (key.isPresent()) {
+                        file.setFilePath(key.get());
+                        changed = true;
+                    }
+                }
+            }
+
+            if (outside) {
+                shareRepository.invalidate(share.getShareId());
+                rejected.add(share.getShareId());
+            } else if (changed) {
+                shareRepository.save(share);
+                migrated++;
+            }
+        }
+        if (migrated > 0) {
+            log.info("已将 {} 条分享的绝对路径迁移为相对存储 key", migrated);
+        }
+        if (!rejected.isEmpty()) {
+            log.warn("{} 条分享引用存储目录外的文件，已失效: {}", rejected.size(), rejected);
+        }
+    }
+
+    private static boolean isAbsolute(String path) {
+        return path != null && Paths.get(path).isAbsolute();
+    }
+}
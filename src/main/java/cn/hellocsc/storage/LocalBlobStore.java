@@ -0,0 +1,203 @@
+package cn.hellocsc.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * 本地目录存储（默认）
+ * 对象即 storage.path 下的文件，下载时由调用方通过 localPath 直接零拷贝
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "storage.blob.backend", havingValue = "local", matchIfMissing = true)
+public class LocalBlobStore implements BlobStore {
+
+    private static final String TEMP_PREFIX = ".upload-";
+
+    @Value("${storage.path:file}")
+    private String storagePath;
+
+    @Override
+    public void put(String key, InputStream content, long size, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        // 先写临时文件再原子改名，避免下载或清理看到写了一半的文件
+        Path temp = target.resolveSibling(TEMP_PREFIX + UUID.randomUUID());
+        try {
+            Files.copy(content, temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ);
+        channel.position(offset);
+        return new BoundedInputStream(Channels.newInputStream(channel), length);
+    }
+
+    @Override
+    public OptionalLong size(String key) throws IOException {
+        try {
+            return OptionalLong.of(Files.size(resolve(key)));
+        } catch (NoSuchFileException e) {
+            return OptionalLong.empty();
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+
+    @Override
+    public long delete(String key) throws IOException {
+        Path path = resolve(key);
+        try {
+            long size = Files.size(path);
+            return Files.deleteIfExists(path) ? size : 0;
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public List<Blob> listExpired(Instant cutOff) throws IOException {
+        Path dir = root();
+        List<Blob> expired = new ArrayList<>();
+        if (!Files.exists(dir)) {
+            return expired;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(path -> {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    Instant lastModified = attributes.lastModifiedTime().toInstant();
+                    // 中断上传留下的临时文件同样按过期处理
+                    if (attributes.isRegularFile() && lastModified.isBefore(cutOff)) {
+                        expired.add(new Blob(path.getFileName().toString(), attributes.size(), lastModified));
+                    }
+                } catch (IOException e) {
+                    log.debug("读取文件属性失败: {}", path, e);
+                }
+            });
+        }
+        return expired;
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.of(resolve(key));
+    }
+
+    private Path root() {
+        return Paths.get(storagePath).toAbsolutePath().normalize();
+    }
+
+    /**
+     * 旧版本元数据中的绝对路径换算为相对 key，不在存储目录下时返回空
+     * 只在启动迁移时使用，读写一律通过 {@link #resolve} 拒绝绝对路径
+     */
+    public Optional<String> relativeKey(String legacyPath) {
+        Path root = root();
+        Path path = Paths.get(legacyPath).toAbsolutePath().normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            return Optional.empty();
+        }
+        return Optional.of(root.relativize(path).toString().replace('\\', '/'));
+    }
+
+    /**
+     * key 来自元数据、下载票据和一致性修复，必须落在存储目录内：
+     * 拒绝绝对路径和经 ".." 逃出存储目录的 key
+     */
+    private Path resolve(String key) {
+        if (key == null || key.isEmpty() || Paths.get(key).isAbsolute()) {
+            throw new IllegalArgumentException("非法的存储 key: " + key);
+        }
+        Path root = root();
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("非法的存储 key: " + key);
+        }
+        return path;
+    }
+
+    /**
+     * 只读取指定长度的输入流
+     */
+    private static class BoundedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
+}
@@ -1,35 +1,148 @@
 package cn.hellocsc.storage;
 
+import cn.hellocsc.config.ClockConfig;
+import cn.hellocsc.metrics.AppMetrics;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import cn.hellocsc.model.ShareContent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import java.time.Clock;
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
 
+/**
+ * 纯内存存储（app.storage.backend=memory）
+ * 用于临时部署和边缘节点：不写快照、没有后台写线程，也没有全局锁，重启后数据丢失；
+ * 并发控制完全交给 Caffeine，过期时间按创建时间计算，查看次数更新不会延长有效期
+ */
+@Slf4j
 @Component
-public class MemoryTextStorage {
-    // 使用Caffeine缓存，24小时过期
-    private final Cache<String, ShareContent> textCache = Caffeine.newBuilder()
-            .expireAfterWrite(Duration.ofHours(24))
-            .maximumSize(5000) // 增加最大容量
-            .build();
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "memory")
+public class MemoryTextStorage implements ShareRepository, InitializingBean {
 
+    private static final Duration SHARE_LIFETIME = Duration.ofHours(24);
+
+    private final AppMetrics metrics;
+    private final Clock clock;
+
+    // 最大记录数
+    @Value("${app.storage.max-entries:5000}")
+    private long maxEntries = 5000;
+
+    private Cache<String, ShareContent> textCache;
+
+    @Override
+    public void afterPropertiesSet() {
+        textCache = Caffeine.newBuilder()
+                .expireAfter(new CreateTimeExpiry(clock))
+                .ticker(ClockConfig.ticker(clock))
+                .initialCapacity((int) Math.min(maxEntries, 1 << 16))
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+        metrics.monitorCache(textCache, "share-metadata");
+        log.info("纯内存存储初始化完成，最大记录数: {}（数据不会持久化）", maxEntries);
+    }
+
+    @Override
     public void save(ShareContent content) {
         textCache.put(content.getShareId(), content);
     }
 
+    @Override
+    public void saveAll(Collection<ShareContent> contents) {
+        Map<String, ShareContent> entries = new HashMap<>();
+        contents.forEach(content -> entries.put(content.getShareId(), content));
+        textCache.putAll(entries);
+    }
+
+    @Override
+    public boolean saveIfAbsent(ShareContent content) {
+        // asMap 视图把已过期的记录视为不存在
+        return textCache.asMap().putIfAbsent(content.getShareId(), content) == null;
+    }
+
+    @Override
     public Optional<ShareContent> get(String shareId) {
         return Optional.ofNullable(textCache.getIfPresent(shareId));
     }
 
+    @Override
+    public Map<String, ShareContent> getAll(Collection<String> shareIds) {
+        return textCache.getAllPresent(shareIds);
+    }
+
+    @Override
+    public Optional<ShareContent> computeIfPresent(String shareId, UnaryOperator<ShareContent> updater) {
+        ShareContent[] updated = new ShareContent[1];
+        // 在 Caffeine 的映射锁内修改，与 invalidate 互斥；放弃修改时保留原记录
+        textCache.asMap().computeIfPresent(shareId, (key, current) -> {
+            updated[0] = updater.apply(current);
+            return updated[0] != null ? updated[0] : current;
+        });
+        return Optional.ofNullable(updated[0]);
+    }
+
+    @Override
     public void invalidate(String shareId) {
         textCache.invalidate(shareId);
     }
 
+    @Override
+    public List<ShareContent> listAll() {
+        // asMap 视图不包含已过期的记录
+        return new ArrayList<>(textCache.asMap().values());
+    }
+
     // 显式触发清理
+    @Override
     public void cleanUp() {
         textCache.cleanUp();
     }
-}
\ No newline at end of file
+
+    /**
+     * 从创建时间起 24 小时过期，更新记录时保持原有的过期时间
+     */
+    private static class CreateTimeExpiry implements Expiry<String, ShareContent> {
+
+        private final Clock clock;
+
+        CreateTimeExpiry(Clock clock) {
+            this.clock = clock;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, ShareContent value, long currentTime) {
+            if (value.getCreateTime() == null) {
+                return SHARE_LIFETIME.toNanos();
+            }
+            Duration remaining = Duration.between(LocalDateTime.now(clock), value.getCreateTime().plus(SHARE_LIFETIME));
+            return Math.max(0, remaining.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, ShareContent value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, ShareContent value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -23,7 +23,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class PersistentStoragePerformanceTest implements CommandLineRunner {
 
     @Autowired
-    private PersistentTextStorage persistentTextStorage;
+    private ShareRepository shareRepository;
 
     @Override
     public void run(String... args) throws Exception {
@@ -51,7 +51,7 @@ public class PersistentStoragePerformanceTest implements CommandLineRunner {
             executor.submit(() -> {
                 for (int j = 0; j < operationsPerThread; j++) {
                     ShareContent content = createTestContent(counter.incrementAndGet());
-                    persistentTextStorage.save(content);
+                    shareRepository.save(content);
                 }
             });
         }
@@ -73,7 +73,7 @@ public class PersistentStoragePerformanceTest implements CommandLineRunner {
         // 先写入一些测试数据
         for (int i = 1; i <= 100; i++) {
             ShareContent content = createTestContent(i);
-            persistentTextStorage.save(content);
+            shareRepository.save(content);
         }
 
         ExecutorService executor = Executors.newFixedThreadPool(threadCount);
@@ -84,7 +84,7 @@ public class PersistentStoragePerformanceTest implements CommandLineRunner {
             executor.submit(() -> {
                 for (int j = 0; j < operationsPerThread; j++) {
                     int id = (j % 100) + 1;
-                    persistentTextStorage.get(String.format("%04d", id));
+                    shareRepository.get(String.format("%04d", id));
                 }
             });
         }
@@ -5,20 +5,32 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import cn.hellocsc.config.ClockConfig;
+import cn.hellocsc.config.VirtualThreads;
+import cn.hellocsc.metrics.AppMetrics;
+import cn.hellocsc.metrics.RequestTrace;
 import cn.hellocsc.model.ShareContent;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
 import org.springframework.beans.factory.DisposableBean;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Clock;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
@@ -27,23 +39,38 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
 
+/**
+ * 本地持久化元数据仓库（默认）：Caffeine 内存缓存 + 定期写入 JSON 快照
+ */
 @Slf4j
 @Component
-public class PersistentTextStorage implements InitializingBean, DisposableBean {
+// 元数据快照由 Jackson 反射读写，AOT/原生镜像需要登记绑定反射
+@RegisterReflectionForBinding(ShareContent.class)
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "persistent", matchIfMissing = true)
+public class PersistentTextStorage implements ShareRepository, InitializingBean, DisposableBean {
 
     @Value("${app.storage.metadata-file:./data/shares_metadata.json}")
     private String metadataFilePath;
 
+    // 内存缓存最大记录数
+    @Value("${app.storage.max-entries:5000}")
+    private long maxEntries = 5000;
+
     // 内存缓存，保持高性能访问
-    private final Cache<String, ShareContent> memoryCache = Caffeine.newBuilder()
-            .expireAfterWrite(Duration.ofHours(24))
-            .maximumSize(5000)
-            .build();
+    private Cache<String, ShareContent> memoryCache;
+
+    private final AppMetrics metrics;
+    private final Clock clock;
+
+    // JDK 21+ 且开启虚拟线程时，异步写入也运行在虚拟线程上
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
 
     // 用于异步写入的线程池
-    private final ScheduledExecutorService writeExecutor = Executors.newSingleThreadScheduledExecutor(
-        r -> new Thread(r, "share-metadata-writer"));
+    private ScheduledExecutorService writeExecutor;
 
     // 读写锁，确保数据一致性
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
@@ -59,6 +86,14 @@ public class PersistentTextStorage implements InitializingBean, DisposableBean {
         // 配置ObjectMapper以处理LocalDateTime
         objectMapper.registerModule(new JavaTimeModule());
 
+        memoryCache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofHours(24))
+                .ticker(ClockConfig.ticker(clock))
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+        metrics.monitorCache(memoryCache, "share-metadata");
+
         // 确保存储目录存在
         createStorageDirectory();
 
@@ -66,6 +101,9 @@ public class PersistentTextStorage implements InitializingBean, DisposableBean {
         loadFromFile();
 
         // 启动定期写入任务（每30秒检查一次）
+        // 读写锁使用 ReentrantReadWriteLock 而非 synchronized，虚拟线程在锁上等待时不会固定载体线程
+        writeExecutor = Executors.newSingleThreadScheduledExecutor(
+                VirtualThreads.threadFactory(virtualThreads, "share-metadata-writer"));
         writeExecutor.scheduleWithFixedDelay(this::flushToDisk, 30, 30, TimeUnit.SECONDS);
 
         log.info("持久化文本存储初始化完成，元数据文件: {}", metadataFilePath);
@@ -87,8 +125,12 @@ public class PersistentTextStorage implements InitializingBean, DisposableBean {
         log.info("持久化文本存储已关闭");
     }
 
+    @Override
     public void save(ShareContent content) {
+        long start = System.nanoTime();
+        long lockStart = RequestTrace.begin();
         lock.writeLock().lock();
+        RequestTrace.end(RequestTrace.LOCK_WAIT, lockStart);
         try {
             // 先保存到内存缓存，保证读取性能
             memoryCache.put(content.getShareId(), content);
@@ -98,11 +140,64 @@ public class PersistentTextStorage implements InitializingBean, DisposableBean {
             log.debug("保存分享记录到内存缓存: {}", content.getShareId());
         } finally {
             lock.writeLock().unlock();
+            metrics.recordStorageSave(System.nanoTime() - start);
         }
     }
 
+    @Override
+    public void saveAll(Collection<ShareContent> contents) {
+        long start = System.nanoTime();
+        long lockStart = RequestTrace.begin();
+        lock.writeLock().lock();
+        RequestTrace.end(RequestTrace.LOCK_WAIT, lockStart);
+        try {
+            for (ShareContent content : contents) {
+                memoryCache.put(content.getShareId(), content);
+            }
+            hasChanges = true;
+
+            log.debug("批量保存分享记录到内存缓存: {} 条", contents.size());
+        } finally {
+            lock.writeLock().unlock();
+            metrics.recordStorageSave(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean saveIfAbsent(ShareContent content) {
+        return saveAllIfAbsent(List.of(content)).isEmpty();
+    }
+
+    @Override
+    public List<ShareContent> saveAllIfAbsent(Collection<ShareContent> contents) {
+        long start = System.nanoTime();
+        long lockStart = RequestTrace.begin();
+        lock.writeLock().lock();
+        RequestTrace.end(RequestTrace.LOCK_WAIT, lockStart);
+        try {
+            List<ShareContent> conflicts = new ArrayList<>();
+            for (ShareContent content : contents) {
+                ShareContent current = memoryCache.getIfPresent(content.getShareId());
+                if (current != null && !isExpired(current)) {
+                    conflicts.add(content);
+                } else {
+                    memoryCache.put(content.getShareId(), content);
+                    hasChanges = true;
+                }
+            }
+            return conflicts;
+        } finally {
+            lock.writeLock().unlock();
+            metrics.recordStorageSave(System.nanoTime() - start);
+        }
+    }
+
+    @Override
     public Optional<ShareContent> get(String shareId) {
+        long start = System.nanoTime();
+        long lockStart = RequestTrace.begin();
         lock.readLock().lock();
+        RequestTrace.end(RequestTrace.LOCK_WAIT, lockStart);
         try {
             // 优先从内存缓存获取，保证性能
             ShareContent content = memoryCache.getIfPresent(shareId);
@@ -119,9 +214,58 @@ public class PersistentTextStorage implements InitializingBean, DisposableBean {
             return Optional.empty();
         } finally {
             lock.readLock().unlock();
+            metrics.recordStorageGet(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Map<String, ShareContent> getAll(Collection<String> shareIds) {
+        long start = System.nanoTime();
+        long lockStart = RequestTrace.begin();
+        lock.readLock().lock();
+        RequestTrace.end(RequestTrace.LOCK_WAIT, lockStart);
+        try {
+            Map<String, ShareContent> result = new HashMap<>();
+            memoryCache.getAllPresent(shareIds).forEach((shareId, content) -> {
+                if (isExpired(content)) {
+                    memoryCache.invalidate(shareId);
+                    hasChanges = true;
+                } else {
+                    result.put(shareId, content);
+                }
+            });
+            return result;
+        } finally {
+            lock.readLock().unlock();
+            metrics.recordStorageGet(System.nanoTime() - start);
         }
     }
 
+    @Override
+    public Optional<ShareContent> computeIfPresent(String shareId, UnaryOperator<ShareContent> updater) {
+        long start = System.nanoTime();
+        long lockStart = RequestTrace.begin();
+        lock.writeLock().lock();
+        RequestTrace.end(RequestTrace.LOCK_WAIT, lockStart);
+        try {
+            ShareContent current = memoryCache.getIfPresent(shareId);
+            if (current == null || isExpired(current)) {
+                return Optional.empty();
+            }
+            ShareContent updated = updater.apply(current);
+            if (updated == null) {
+                return Optional.empty();
+            }
+            memoryCache.put(shareId, updated);
+            hasChanges = true;
+            return Optional.of(updated);
+        } finally {
+            lock.writeLock().unlock();
+            metrics.recordStorageSave(System.nanoTime() - start);
+        }
+    }
+
+    @Override
     public void invalidate(String shareId) {
         lock.writeLock().lock();
         try {
@@ -133,6 +277,30 @@ public class PersistentTextStorage implements InitializingBean, DisposableBean {
         }
     }
 
+    @Override
+    public void delete(String shareId) {
+        invalidate(shareId);
+        // 不等下一次定时写盘，避免重启后已删除的分享重新出现
+        writeExecutor.execute(this::flushToDisk);
+    }
+
+    @Override
+    public List<ShareContent> listAll() {
+        lock.readLock().lock();
+        try {
+            List<ShareContent> result = new ArrayList<>();
+            memoryCache.asMap().values().forEach(value -> {
+                if (!isExpired(value)) {
+                    result.add(value);
+                }
+            });
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
     public void cleanUp() {
         lock.writeLock().lock();
         try {
@@ -147,11 +315,12 @@ public class PersistentTextStorage implements InitializingBean, DisposableBean {
     /**
      * 异步将数据刷新到磁盘
      */
-    private void flushToDisk() {
+    void flushToDisk() {
         if (!hasChanges) {
             return;
         }
 
+        long start = System.nanoTime();
         lock.readLock().lock();
         Map<String, ShareContent> currentData;
         try {
@@ -169,7 +338,8 @@ public class PersistentTextStorage implements InitializingBean, DisposableBean {
 
         // 异步写入文件
         try {
-            writeToFile(currentData);
+            long bytes = writeToFile(currentData);
+            metrics.recordFlush(System.nanoTime() - start, bytes, currentData.size());
             log.debug("成功将 {} 条记录写入持久化文件", currentData.size());
         } catch (Exception e) {
             log.error("写入持久化文件失败", e);
@@ -181,7 +351,7 @@ public class PersistentTextStorage implements InitializingBean, DisposableBean {
     /**
      * 从文件加载数据到内存缓存
      */
-    private void loadFromFile() {
+    void loadFromFile() {
         Path filePath = Paths.get(metadataFilePath);
         if (!Files.exists(filePath)) {
             log.info("持久化文件不存在，从空状态开始: {}", metadataFilePath);
@@ -224,9 +394,9 @@ public class PersistentTextStorage implements InitializingBean, DisposableBean {
     }
 
     /**
-     * 将数据写入文件
+     * 将数据写入文件，返回写入的字节数
      */
-    private void writeToFile(Map<String, ShareContent> data) throws IOException {
+    private long writeToFile(Map<String, ShareContent> data) throws IOException {
         Path filePath = Paths.get(metadataFilePath);
         Path tempPath = Paths.get(metadataFilePath + ".tmp");
 
@@ -235,8 +405,11 @@ public class PersistentTextStorage implements InitializingBean, DisposableBean {
             objectMapper.writeValue(writer, data);
         }
 
+        long bytes = Files.size(tempPath);
+
         // 原子性地替换文件
         Files.move(tempPath, filePath, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        return bytes;
     }
 
     /**
@@ -263,6 +436,6 @@ public class PersistentTextStorage implements InitializingBean, DisposableBean {
             return true;
         }
         LocalDateTime expiryTime = content.getCreateTime().plusHours(24);
-        return LocalDateTime.now().isAfter(expiryTime);
+        return LocalDateTime.now(clock).isAfter(expiryTime);
     }
 }
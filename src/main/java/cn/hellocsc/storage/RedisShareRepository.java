@@ -0,0 +1,433 @@
+package cn.hellocsc.storage;
+
+import cn.hellocsc.metrics.AppMetrics;
+import cn.hellocsc.model.ShareContent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * 共享元数据仓库（多节点部署）：基于 Redis 协议的存储
+ * 每条记录一个键并设置 24 小时内剩余的 TTL，另用有序集合按创建时间索引；
+ * 本地保留一个短期近端缓存，任一节点写入或失效时通过发布/订阅通知其他节点清除近端缓存
+ *
+ * 文件存储必须是所有节点共享的（S3 或共享挂载的目录）：缺失文件检查、配额淘汰和一致性扫描
+ * 会使记录失效，如果文件只在某一节点本地，其他节点的分享会被一并删除
+ */
+@Slf4j
+@Component
+@RegisterReflectionForBinding(ShareContent.class)
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "redis")
+public class RedisShareRepository implements ShareRepository, MessageListener, InitializingBean, DisposableBean {
+
+    private static final String KEY_PREFIX = "flashshare:share:";
+    private static final String INDEX_KEY = "flashshare:shares";
+    private static final String INVALIDATION_CHANNEL = "flashshare:invalidate";
+    private static final Duration SHARE_LIFETIME = Duration.ofHours(24);
+    // 条件更新遇到并发写入时的最大重试次数
+    private static final int MAX_UPDATE_ATTEMPTS = 5;
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisConnectionFactory connectionFactory;
+    private final BlobStore blobStore;
+    private final AppMetrics metrics;
+    private final Clock clock;
+
+    // 近端缓存有效期，跨节点失效消息丢失时的兜底
+    @Value("${app.storage.redis.near-cache-ttl:30s}")
+    private Duration nearCacheTtl;
+
+    @Value("${app.storage.max-entries:5000}")
+    private long maxEntries;
+
+    // storage.path 是所有节点挂载的同一共享目录时设为 true，允许与本地文件存储一起使用
+    @Value("${app.storage.redis.shared-local-path:false}")
+    private boolean sharedLocalPath;
+
+    // 本节点标识，忽略自己发出的失效消息
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Cache<String, ShareContent> nearCache;
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (blobStore.localPath("probe").isPresent() && !sharedLocalPath) {
+            throw new IllegalStateException("redis 元数据后端需要各节点共享的文件存储：请使用 storage.blob.backend=s3，"
+                    + "或在 storage.path 为共享目录时设置 app.storage.redis.shared-local-path=true");
+        }
+        objectMapper.registerModule(new JavaTimeModule());
+
+        nearCache = Caffeine.newBuilder()
+                .expireAfterWrite(nearCacheTtl)
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+        metrics.monitorCache(nearCache, "share-near-cache");
+
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+
+        log.info("Redis 共享元数据仓库初始化完成，节点: {}", nodeId);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+    }
+
+    @Override
+    public void save(ShareContent content) {
+        long start = System.nanoTime();
+        try {
+            Duration ttl = remainingLifetime(content);
+            if (ttl.isNegative() || ttl.isZero()) {
+                return;
+            }
+            String json = objectMapper.writeValueAsString(content);
+            redisTemplate.opsForValue().set(KEY_PREFIX + content.getShareId(), json, ttl);
+            redisTemplate.opsForZSet().add(INDEX_KEY, content.getShareId(), createdAtMillis(content));
+            nearCache.put(content.getShareId(), content);
+            publishInvalidation(content.getShareId());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("分享记录序列化失败: " + content.getShareId(), e);
+        } finally {
+            metrics.recordStorageSave(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 批量保存：所有写入放在一个管道中，失效通知合并为一条消息
+     */
+    @Override
+    public void saveAll(Collection<ShareContent> contents) {
+        long start = System.nanoTime();
+        try {
+            Map<ShareContent, String> serialized = new LinkedHashMap<>();
+            for (ShareContent content : contents) {
+                if (remainingLifetime(content).compareTo(Duration.ofSeconds(1)) >= 0) {
+                    serialized.put(content, objectMapper.writeValueAsString(content));
+                }
+            }
+            if (serialized.isEmpty()) {
+                return;
+            }
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection strings = (StringRedisConnection) connection;
+                serialized.forEach((content, json) -> {
+                    strings.setEx(KEY_PREFIX + content.getShareId(), remainingLifetime(content).toSeconds(), json);
+                    strings.zAdd(INDEX_KEY, createdAtMillis(content), content.getShareId());
+                });
+                return null;
+            });
+            serialized.keySet().forEach(content -> nearCache.put(content.getShareId(), content));
+            publishInvalidation(serialized.keySet().stream()
+                    .map(ShareContent::getShareId)
+                    .collect(Collectors.joining(",")));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("分享记录序列化失败", e);
+        } finally {
+            metrics.recordStorageSave(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * SET NX：分享码已被占用（包括其他节点刚写入的）时不写入
+     */
+    @Override
+    public boolean saveIfAbsent(ShareContent content) {
+        long start = System.nanoTime();
+        try {
+            Duration ttl = remainingLifetime(content);
+            if (ttl.compareTo(Duration.ofSeconds(1)) < 0) {
+                return true;
+            }
+            Boolean saved = redisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + content.getShareId(), write(content), ttl);
+            if (!Boolean.TRUE.equals(saved)) {
+                return false;
+            }
+            redisTemplate.opsForZSet().add(INDEX_KEY, content.getShareId(), createdAtMillis(content));
+            nearCache.put(content.getShareId(), content);
+            publishInvalidation(content.getShareId());
+            return true;
+        } finally {
+            metrics.recordStorageSave(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 批量 SET NX 放在一个管道中，成功写入的记录再用一个管道加入索引
+     */
+    @Override
+    public List<ShareContent> saveAllIfAbsent(Collection<ShareContent> contents) {
+        long start = System.nanoTime();
+        try {
+            Map<ShareContent, String> serialized = new LinkedHashMap<>();
+            for (ShareContent content : contents) {
+                if (remainingLifetime(content).compareTo(Duration.ofSeconds(1)) >= 0) {
+                    serialized.put(content, write(content));
+                }
+            }
+            if (serialized.isEmpty()) {
+                return List.of();
+            }
+            List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection strings = (StringRedisConnection) connection;
+                serialized.forEach((content, json) -> strings.set(KEY_PREFIX + content.getShareId(), json,
+                        Expiration.seconds(remainingLifetime(content).toSeconds()), SetOption.ifAbsent()));
+                return null;
+            });
+            List<ShareContent> saved = new ArrayList<>();
+            List<ShareContent> conflicts = new ArrayList<>();
+            int i = 0;
+            for (ShareContent content : serialized.keySet()) {
+                (Boolean.TRUE.equals(replies.get(i++)) ? saved : conflicts).add(content);
+            }
+            if (!saved.isEmpty()) {
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection strings = (StringRedisConnection) connection;
+                    saved.forEach(content -> strings.zAdd(INDEX_KEY, createdAtMillis(content), content.getShareId()));
+                    return null;
+                });
+                saved.forEach(content -> nearCache.put(content.getShareId(), content));
+                publishInvalidation(saved.stream().map(ShareContent::getShareId).collect(Collectors.joining(",")));
+            }
+            return conflicts;
+        } finally {
+            metrics.recordStorageSave(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Optional<ShareContent> get(String shareId) {
+        long start = System.nanoTime();
+        try {
+            ShareContent content = nearCache.getIfPresent(shareId);
+            if (content == null) {
+                content = read(redisTemplate.opsForValue().get(KEY_PREFIX + shareId));
+                if (content != null) {
+                    nearCache.put(shareId, content);
+                }
+            }
+            if (content == null || isExpired(content)) {
+                return Optional.empty();
+            }
+            return Optional.of(content);
+        } finally {
+            metrics.recordStorageGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 批量获取：近端缓存未命中的记录用一次 MGET 读取
+     */
+    @Override
+    public Map<String, ShareContent> getAll(Collection<String> shareIds) {
+        long start = System.nanoTime();
+        try {
+            Map<String, ShareContent> result = new HashMap<>(nearCache.getAllPresent(shareIds));
+            List<String> missing = shareIds.stream().distinct().filter(id -> !result.containsKey(id)).toList();
+            if (!missing.isEmpty()) {
+                List<String> values = redisTemplate.opsForValue()
+                        .multiGet(missing.stream().map(id -> KEY_PREFIX + id).toList());
+                for (int i = 0; values != null && i < missing.size(); i++) {
+                    ShareContent content = read(values.get(i));
+                    if (content != null) {
+                        nearCache.put(missing.get(i), content);
+                        result.put(missing.get(i), content);
+                    }
+                }
+            }
+            result.values().removeIf(this::isExpired);
+            return result;
+        } finally {
+            metrics.recordStorageGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 乐观事务：WATCH 记录键后读取、修改，MULTI/EXEC 写回；期间记录被其他节点修改或删除时 EXEC 放弃，重新读取
+     */
+    @Override
+    public Optional<ShareContent> computeIfPresent(String shareId, UnaryOperator<ShareContent> updater) {
+        long start = System.nanoTime();
+        String key = KEY_PREFIX + shareId;
+        try {
+            for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+                Optional<ShareContent> result = redisTemplate.execute(new SessionCallback<>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Optional<ShareContent> execute(RedisOperations<K, V> operations) {
+                        RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                        ops.watch(key);
+                        ShareContent current = read(ops.opsForValue().get(key));
+                        ShareContent updated = current != null && !isExpired(current) ? updater.apply(current) : null;
+                        Duration ttl = updated != null ? remainingLifetime(updated) : Duration.ZERO;
+                        if (ttl.compareTo(Duration.ofSeconds(1)) < 0) {
+                            ops.unwatch();
+                            return Optional.empty();
+                        }
+                        String json = write(updated);
+                        ops.multi();
+                        ops.opsForValue().set(key, json, ttl);
+                        List<Object> replies = ops.exec();
+                        // 事务被放弃时返回 null 表示需要重试
+                        return replies == null || replies.isEmpty() ? null : Optional.of(updated);
+                    }
+                });
+                if (result != null) {
+                    result.ifPresent(updated -> {
+                        nearCache.put(shareId, updated);
+                        publishInvalidation(shareId);
+                    });
+                    return result;
+                }
+            }
+            log.warn("分享记录并发修改，放弃更新: {}", shareId);
+            return Optional.empty();
+        } finally {
+            metrics.recordStorageSave(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void invalidate(String shareId) {
+        redisTemplate.delete(KEY_PREFIX + shareId);
+        redisTemplate.opsForZSet().remove(INDEX_KEY, shareId);
+        nearCache.invalidate(shareId);
+        publishInvalidation(shareId);
+        log.debug("使分享记录失效: {}", shareId);
+    }
+
+    @Override
+    public List<ShareContent> listAll() {
+        long cutOff = clock.millis() - SHARE_LIFETIME.toMillis();
+        Set<String> ids = redisTemplate.opsForZSet().rangeByScore(INDEX_KEY, cutOff, Double.POSITIVE_INFINITY);
+        List<ShareContent> result = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return result;
+        }
+        List<String> keys = ids.stream().map(id -> KEY_PREFIX + id).toList();
+        List<String> values = redisTemplate.opsForValue().multiGet(keys);
+        if (values != null) {
+            for (String json : values) {
+                ShareContent content = read(json);
+                if (content != null && !isExpired(content)) {
+                    result.add(content);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void cleanUp() {
+        // 记录本身由 TTL 过期，这里只清理索引
+        long cutOff = clock.millis() - SHARE_LIFETIME.toMillis();
+        redisTemplate.opsForZSet().removeRangeByScore(INDEX_KEY, 0, cutOff);
+        nearCache.cleanUp();
+    }
+
+    /**
+     * 接收其他节点的失效消息，清除近端缓存
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf('|');
+        if (separator < 0 || body.substring(0, separator).equals(nodeId)) {
+            return;
+        }
+        // 批量写入时一条消息包含多个以逗号分隔的 ID
+        nearCache.invalidateAll(Arrays.asList(body.substring(separator + 1).split(",")));
+    }
+
+    private void publishInvalidation(String shareIds) {
+        redisTemplate.convertAndSend(INVALIDATION_CHANNEL, nodeId + "|" + shareIds);
+    }
+
+    private String write(ShareContent content) {
+        try {
+            return objectMapper.writeValueAsString(content);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("分享记录序列化失败: " + content.getShareId(), e);
+        }
+    }
+
+    private ShareContent read(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, ShareContent.class);
+        } catch (JsonProcessingException e) {
+            log.warn("分享记录反序列化失败", e);
+            return null;
+        }
+    }
+
+    private Duration remainingLifetime(ShareContent content) {
+        if (content.getCreateTime() == null) {
+            return Duration.ZERO;
+        }
+        return Duration.between(LocalDateTime.now(clock), content.getCreateTime().plus(SHARE_LIFETIME));
+    }
+
+    private long createdAtMillis(ShareContent content) {
+        return content.getCreateTime().atZone(clock.getZone()).toInstant().toEpochMilli();
+    }
+
+    private boolean isExpired(ShareContent content) {
+        if (content == null || content.getCreateTime() == null) {
+            return true;
+        }
+        return LocalDateTime.now(clock).isAfter(content.getCreateTime().plus(SHARE_LIFETIME));
+    }
+}
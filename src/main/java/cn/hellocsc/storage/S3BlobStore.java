@@ -0,0 +1,363 @@
+package cn.hellocsc.storage;
+
+import cn.hellocsc.config.VirtualThreads;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.file.NoSuchFileException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * S3 兼容的对象存储
+ * 大文件分段并行上传，大范围读取拆成多个 Range 请求并行预取；
+ * 配置 endpoint 后可指向 MinIO 等本地替身进行测试
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "storage.blob.backend", havingValue = "s3")
+public class S3BlobStore implements BlobStore, InitializingBean, DisposableBean {
+
+    // S3 要求除最后一段外每段不小于 5MB
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    @Value("${storage.blob.s3.bucket}")
+    private String bucket;
+
+    @Value("${storage.blob.s3.prefix:}")
+    private String prefix;
+
+    // 为空时使用 AWS 默认地址
+    @Value("${storage.blob.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${storage.blob.s3.region:us-east-1}")
+    private String region;
+
+    // MinIO 等兼容服务通常需要路径风格访问
+    @Value("${storage.blob.s3.path-style:true}")
+    private boolean pathStyle;
+
+    // 为空时使用默认凭证链（环境变量、实例角色等）
+    @Value("${storage.blob.s3.access-key:}")
+    private String accessKey;
+
+    @Value("${storage.blob.s3.secret-key:}")
+    private String secretKey;
+
+    // 分段大小，同时也是并行读取时每个 Range 请求的大小
+    @Value("${storage.blob.s3.part-size:8388608}")
+    private int partSize;
+
+    // 单个上传/下载同时在途的分段数，内存占用约为 part-size * parallelism
+    @Value("${storage.blob.s3.parallelism:4}")
+    private int parallelism;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private S3Client client;
+    private ExecutorService executor;
+
+    @Override
+    public void afterPropertiesSet() {
+        partSize = Math.max(partSize, MIN_PART_SIZE);
+        parallelism = Math.max(parallelism, 1);
+        if (!prefix.isEmpty() && !prefix.endsWith("/")) {
+            prefix = prefix + "/";
+        }
+
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .forcePathStyle(pathStyle)
+                // 并行分段会同时占用多个连接，默认 50 个连接在并发下载时不够用
+                .httpClientBuilder(ApacheHttpClient.builder().maxConnections(Math.max(50, parallelism * 32)));
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        if (!accessKey.isBlank()) {
+            builder.credentialsProvider(StaticCredentialsProvider.create(
+                    AwsBasicCredentials.create(accessKey, secretKey)));
+        }
+        client = builder.build();
+        executor = Executors.newCachedThreadPool(VirtualThreads.threadFactory(virtualThreads, "s3-transfer"));
+
+        log.info("S3 对象存储初始化完成 - bucket: {}, 前缀: '{}', 分段: {} 字节, 并行度: {}",
+                bucket, prefix, partSize, parallelism);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        client.close();
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size, String contentType) throws IOException {
+        try {
+            if (size >= 0 && size <= partSize) {
+                client.putObject(b -> b.bucket(bucket).key(objectKey(key)).contentType(contentType)
+                        .contentLength(size), RequestBody.fromInputStream(content, size));
+                return;
+            }
+            multipartUpload(objectKey(key), content, contentType);
+        } catch (SdkException e) {
+            throw new IOException("上传对象失败: " + key, e);
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        OptionalLong size = size(key);
+        if (size.isEmpty()) {
+            throw new NoSuchFileException(key);
+        }
+        return getRange(key, 0, size.getAsLong());
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        if (length <= 0) {
+            return InputStream.nullInputStream();
+        }
+        if (length <= partSize) {
+            try {
+                return client.getObject(b -> b.bucket(bucket).key(objectKey(key))
+                        .range(range(offset, offset + length - 1)));
+            } catch (SdkException e) {
+                throw new IOException("读取对象失败: " + key, e);
+            }
+        }
+        return new ParallelRangeInputStream(objectKey(key), offset, offset + length);
+    }
+
+    @Override
+    public OptionalLong size(String key) throws IOException {
+        try {
+            return OptionalLong.of(client.headObject(b -> b.bucket(bucket).key(objectKey(key))).contentLength());
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return OptionalLong.empty();
+            }
+            throw new IOException("查询对象失败: " + key, e);
+        } catch (SdkException e) {
+            throw new IOException("查询对象失败: " + key, e);
+        }
+    }
+
+    @Override
+    public long delete(String key) throws IOException {
+        OptionalLong size = size(key);
+        if (size.isEmpty()) {
+            return 0;
+        }
+        try {
+            client.deleteObject(b -> b.bucket(bucket).key(objectKey(key)));
+            return size.getAsLong();
+        } catch (SdkException e) {
+            throw new IOException("删除对象失败: " + key, e);
+        }
+    }
+
+    @Override
+    public List<Blob> listExpired(Instant cutOff) throws IOException {
+        List<Blob> expired = new ArrayList<>();
+        try {
+            for (S3Object object : client.listObjectsV2Paginator(b -> b.bucket(bucket).prefix(prefix)).contents()) {
+                if (object.lastModified().isBefore(cutOff)) {
+                    expired.add(new Blob(object.key().substring(prefix.length()), object.size(), object.lastModified()));
+                }
+            }
+        } catch (SdkException e) {
+            throw new IOException("列出过期对象失败", e);
+        }
+        return expired;
+    }
+
+    /**
+     * 分段并行上传：顺序读取输入流切分成段，最多 parallelism 个分段同时上传
+     */
+    private void multipartUpload(String objectKey, InputStream content, String contentType) throws IOException {
+        String uploadId = client.createMultipartUpload(b -> b.bucket(bucket).key(objectKey).contentType(contentType))
+                .uploadId();
+        Semaphore permits = new Semaphore(parallelism);
+        List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+        try {
+            for (int partNumber = 1; ; partNumber++) {
+                byte[] part = readPart(content);
+                if (part.length == 0 && partNumber > 1) {
+                    break;
+                }
+                // 限制在途分段数量，也就限制了缓冲占用的内存
+                permits.acquire();
+                int number = partNumber;
+                parts.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        String eTag = client.uploadPart(b -> b.bucket(bucket).key(objectKey).uploadId(uploadId)
+                                .partNumber(number).contentLength((long) part.length), RequestBody.fromBytes(part)).eTag();
+                        return CompletedPart.builder().partNumber(number).eTag(eTag).build();
+                    } finally {
+                        permits.release();
+                    }
+                }, executor));
+                // 已有分段失败时不再继续读取
+                if (part.length < partSize || parts.stream().anyMatch(CompletableFuture::isCompletedExceptionally)) {
+                    break;
+                }
+            }
+
+            List<CompletedPart> completed = parts.stream().map(CompletableFuture::join).toList();
+            client.completeMultipartUpload(b -> b.bucket(bucket).key(objectKey).uploadId(uploadId)
+                    .multipartUpload(m -> m.parts(completed)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(objectKey, uploadId, parts);
+            throw new InterruptedIOException("分段上传被中断: " + objectKey);
+        } catch (CompletionException | SdkException | IOException e) {
+            abort(objectKey, uploadId, parts);
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            throw new IOException("分段上传失败: " + objectKey, cause);
+        }
+    }
+
+    private byte[] readPart(InputStream content) throws IOException {
+        byte[] buffer = new byte[partSize];
+        int read = content.readNBytes(buffer, 0, partSize);
+        return read == partSize ? buffer : Arrays.copyOf(buffer, read);
+    }
+
+    private void abort(String objectKey, String uploadId, List<CompletableFuture<CompletedPart>> parts) {
+        parts.forEach(part -> part.cancel(true));
+        try {
+            client.abortMultipartUpload(b -> b.bucket(bucket).key(objectKey).uploadId(uploadId));
+        } catch (SdkException e) {
+            log.warn("取消分段上传失败，残留分段需由存储桶生命周期规则清理: {}", objectKey, e);
+        }
+    }
+
+    private byte[] fetch(String objectKey, long from, long to) {
+        return client.getObjectAsBytes(b -> b.bucket(bucket).key(objectKey).range(range(from, to))).asByteArray();
+    }
+
+    private String objectKey(String key) {
+        return prefix + key;
+    }
+
+    private static String range(long from, long to) {
+        return "bytes=" + from + "-" + to;
+    }
+
+    /**
+     * 并行分段读取：按顺序返回数据，同时最多预取 parallelism 个 Range
+     */
+    private class ParallelRangeInputStream extends InputStream {
+
+        private final String objectKey;
+        private final long end;
+        private final Deque<CompletableFuture<byte[]>> inFlight = new ArrayDeque<>();
+        private long nextOffset;
+        private byte[] current = new byte[0];
+        private int index = 0;
+
+        ParallelRangeInputStream(String objectKey, long offset, long end) {
+            this.objectKey = objectKey;
+            this.nextOffset = offset;
+            this.end = end;
+            prefetch();
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!advance()) {
+                return -1;
+            }
+            return current[index++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!advance()) {
+                return -1;
+            }
+            int count = Math.min(len, current.length - index);
+            System.arraycopy(current, index, b, off, count);
+            index += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return current.length - index;
+        }
+
+        @Override
+        public void close() {
+            inFlight.forEach(future -> future.cancel(true));
+            inFlight.clear();
+            current = new byte[0];
+            index = 0;
+        }
+
+        private void prefetch() {
+            while (inFlight.size() < parallelism && nextOffset < end) {
+                long from = nextOffset;
+                long to = Math.min(end, from + partSize) - 1;
+                inFlight.add(CompletableFuture.supplyAsync(() -> fetch(objectKey, from, to), executor));
+                nextOffset = to + 1;
+            }
+        }
+
+        private boolean advance() throws IOException {
+            while (index >= current.length) {
+                CompletableFuture<byte[]> next = inFlight.poll();
+                if (next == null) {
+                    return false;
+                }
+                try {
+                    current = next.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("分段读取被中断: " + objectKey);
+                } catch (ExecutionException e) {
+                    throw new IOException("分段读取失败: " + objectKey, e.getCause());
+                }
+                index = 0;
+                prefetch();
+            }
+            return true;
+        }
+    }
+}
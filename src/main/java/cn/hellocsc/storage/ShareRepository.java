@@ -0,0 +1,92 @@
+package cn.hellocsc.storage;
+
+import cn.hellocsc.model.ShareContent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * 分享元数据仓库
+ * 默认实现为本地持久化存储 (PersistentTextStorage)，多节点部署时可通过 app.storage.backend 切换到共享后端
+ */
+public interface ShareRepository {
+
+    void save(ShareContent content);
+
+    /**
+     * 批量保存，实现应只加锁/往返一次
+     */
+    default void saveAll(Collection<ShareContent> contents) {
+        contents.forEach(this::save);
+    }
+
+    /**
+     * 分享码未被占用（不存在或已过期）时原子地保存，与其他写入互斥；用于新建分享，避免并发创建抽到同一分享码时互相覆盖
+     *
+     * @return 保存成功返回 true，分享码已被占用时返回 false 且不写入
+     */
+    boolean saveIfAbsent(ShareContent content);
+
+    /**
+     * 批量 {@link #saveIfAbsent}，实现应只加锁/往返一次
+     *
+     * @return 分享码已被占用、没有保存的记录
+     */
+    default List<ShareContent> saveAllIfAbsent(Collection<ShareContent> contents) {
+        List<ShareContent> conflicts = new ArrayList<>();
+        for (ShareContent content : contents) {
+            if (!saveIfAbsent(content)) {
+                conflicts.add(content);
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * 获取未过期的分享记录
+     */
+    Optional<ShareContent> get(String shareId);
+
+    /**
+     * 批量获取未过期的分享记录，不存在或已过期的 ID 不出现在结果中
+     */
+    default Map<String, ShareContent> getAll(Collection<String> shareIds) {
+        Map<String, ShareContent> result = new HashMap<>();
+        for (String shareId : shareIds) {
+            get(shareId).ifPresent(content -> result.put(shareId, content));
+        }
+        return result;
+    }
+
+    /**
+     * 记录仍存在且未过期时，原子地修改并保存：与删除、失效互斥，已删除的记录不会被写回；
+     * updater 返回 null 表示放弃修改
+     *
+     * @return 修改后的记录；记录不存在、已过期或放弃修改时为空
+     */
+    Optional<ShareContent> computeIfPresent(String shareId, UnaryOperator<ShareContent> updater);
+
+    void invalidate(String shareId);
+
+    /**
+     * 所有者主动删除分享，默认等同于 {@link #invalidate}；有本地快照的实现应尽快落盘
+     */
+    default void delete(String shareId) {
+        invalidate(shareId);
+    }
+
+    /**
+     * 获取当前所有未过期分享记录的快照
+     */
+    List<ShareContent> listAll();
+
+    /**
+     * 清理过期记录
+     */
+    void cleanUp();
+}
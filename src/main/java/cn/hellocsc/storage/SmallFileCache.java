@@ -0,0 +1,139 @@
+package cn.hellocsc.storage;
+
+import cn.hellocsc.metrics.AppMetrics;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * 小文件内存层
+ * 小于阈值的文件在上传时读入堆外缓冲区，下载时直接从内存返回；
+ * 按字节数加权淘汰，未命中时回退到文件存储
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SmallFileCache implements InitializingBean {
+
+    private final AppMetrics metrics;
+
+    // 单个文件进入内存层的大小上限，0 表示关闭
+    @Value("${storage.small-file.threshold:262144}")
+    private long threshold;
+
+    // 内存层总容量（字节）
+    @Value("${storage.small-file.max-bytes:67108864}")
+    private long maxBytes;
+
+    private Cache<String, ByteBuffer> cache;
+
+    @Override
+    public void afterPropertiesSet() {
+        // 单个文件不能超过总容量，否则放入即被淘汰
+        threshold = Math.min(threshold, maxBytes);
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, ByteBuffer buffer) -> buffer.capacity())
+                .expireAfterAccess(Duration.ofHours(24))
+                .recordStats()
+                .build();
+        metrics.monitorCache(cache, "small-file");
+        log.info("小文件内存层初始化完成 - 阈值: {} 字节, 容量: {} 字节", threshold, maxBytes);
+    }
+
+    public boolean accepts(long size) {
+        return threshold > 0 && size <= threshold;
+    }
+
+    /**
+     * 上传时直接放入内存层
+     */
+    public void put(String key, byte[] content) {
+        if (!accepts(content.length)) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(content.length);
+        buffer.put(content).flip();
+        cache.put(key, buffer.asReadOnlyBuffer());
+    }
+
+    /**
+     * 获取文件内容，未命中时从文件存储加载；返回的缓冲区每次调用独立，可直接写出
+     */
+    public Optional<ByteBuffer> get(String key, long size, BlobStore blobStore) {
+        ByteBuffer buffer = cache.getIfPresent(key);
+        if (buffer == null) {
+            if (!accepts(size)) {
+                return Optional.empty();
+            }
+            // 在 Caffeine 的 compute 之外读盘：compute 内部持有 synchronized 桶锁，
+            // 在虚拟线程上做阻塞 I/O 会固定载体线程
+            try {
+                buffer = load(key, size, blobStore);
+            } catch (IOException e) {
+                log.debug("小文件载入内存失败，回退到文件存储: {}", key, e);
+                return Optional.empty();
+            }
+            if (buffer == null) {
+                return Optional.empty();
+            }
+            cache.put(key, buffer);
+        }
+        return Optional.of(buffer.duplicate());
+    }
+
+    public void invalidate(String key) {
+        cache.invalidate(key);
+    }
+
+    public long getEntryCount() {
+        return cache.estimatedSize();
+    }
+
+    public long getUsedBytes() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private ByteBuffer load(String key, long size, BlobStore blobStore) throws IOException {
+        Optional<Path> localPath = blobStore.localPath(key);
+        try (ReadableByteChannel channel = localPath.isPresent()
+                ? FileChannel.open(localPath.get(), StandardOpenOption.READ)
+                : Channels.newChannel(blobStore.get(key))) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // 读满为止
+            }
+            if (buffer.hasRemaining()) {
+                // 实际内容比记录的小，说明文件已被改动，不缓存
+                return null;
+            }
+            buffer.flip();
+            return buffer.asReadOnlyBuffer();
+        }
+    }
+}
@@ -3,8 +3,9 @@ package cn.hellocsc.task;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import cn.hellocsc.metrics.AppMetrics;
+import cn.hellocsc.service.FileStorageService;
 import cn.hellocsc.service.ShareService;
-import cn.hellocsc.storage.MemoryTextStorage;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -14,12 +15,19 @@ import org.springframework.stereotype.Component;
 public class CleanupTask {
 
     private final ShareService shareService;
+    private final FileStorageService fileStorageService;
+    private final ReclaimExecutor reclaimExecutor;
+    private final AppMetrics metrics;
 
-    // 每5分钟执行一次清理
-    @Scheduled(fixedRate = 300000)
+    // 默认每5分钟执行一次清理，可通过 storage.cleanup-interval 配置
+    @Scheduled(fixedRateString = "${storage.cleanup-interval:300000}")
     public void cleanupExpiredShares() {
         log.info("开始清理过期分享内容...");
-        int cleaned = shareService.cleanupExpiredShares();
-        log.info("清理完成，共删除 {} 个过期分享", cleaned);
+        long start = System.nanoTime();
+        // 过期文件(保留24小时内的文件)只入队，由后台回收执行器按 I/O 预算删除
+        int queued = reclaimExecutor.submit(fileStorageService.listExpiredFiles(24));
+        shareService.cleanupExpiredShares();
+        metrics.recordCleanupScan(System.nanoTime() - start);
+        log.info("清理完成，新增 {} 个待回收的过期文件", queued);
     }
-}
\ No newline at end of file
+}
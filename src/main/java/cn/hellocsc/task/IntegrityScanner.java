@@ -0,0 +1,405 @@
+package cn.hellocsc.task;
+
+import cn.hellocsc.filter.TokenBucket;
+import cn.hellocsc.model.ShareContent;
+import cn.hellocsc.model.SharedFile;
+import cn.hellocsc.service.FileStorageService;
+import cn.hellocsc.storage.BlobStore;
+import cn.hellocsc.storage.ShareRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据一致性扫描（替代启动时的 DataRepairTool）
+ * 应用就绪后在后台运行：并行获取元数据快照和文件存储清单，检查缺失文件、大小不一致和孤儿文件，
+ * 并在 I/O 预算内修复或回收；按批写入检查点，重启后从中断处继续
+ */
+@Slf4j
+@Component
+@RegisterReflectionForBinding(IntegrityScanner.Checkpoint.class)
+@RequiredArgsConstructor
+public class IntegrityScanner implements DisposableBean {
+
+    private static final String PHASE_SHARES = "shares";
+    private static final String PHASE_ORPHANS = "orphans";
+
+    private final ShareRepository shareRepository;
+    private final BlobStore blobStore;
+    private final FileStorageService fileStorageService;
+    private final Clock clock;
+
+    @Value("${app.integrity.enabled:true}")
+    private boolean enabled;
+
+    // false 时只记录问题，不做任何修改
+    @Value("${app.integrity.repair:true}")
+    private boolean repair;
+
+    // 多个节点共享文件存储但元数据不共享时应关闭，否则会误删其他节点的文件
+    @Value("${app.integrity.reclaim-orphans:true}")
+    private boolean reclaimOrphans;
+
+    // 修改时间在此时间内的文件视为正在上传，不参与孤儿判断
+    @Value("${app.integrity.orphan-grace:1h}")
+    private Duration orphanGrace;
+
+    // I/O 预算：每秒存储操作数（查询/删除）与每秒删除字节数
+    @Value("${app.integrity.max-ops-per-second:20}")
+    private double maxOpsPerSecond;
+
+    @Value("${app.integrity.max-delete-bytes-per-second:67108864}")
+    private double maxDeleteBytesPerSecond;
+
+    // 每处理多少条记录写一次检查点
+    @Value("${app.integrity.checkpoint-interval:200}")
+    private int checkpointInterval;
+
+    @Value("${app.integrity.checkpoint-file:./data/integrity-scan.json}")
+    private String checkpointFile;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "integrity-scanner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile String state = "idle";
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private final AtomicLong sharesChecked = new AtomicLong();
+    private final AtomicLong missingFiles = new AtomicLong();
+    private final AtomicLong sizeMismatches = new AtomicLong();
+    private final AtomicLong repairedPaths = new AtomicLong();
+    private final AtomicLong orphansReclaimed = new AtomicLong();
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+
+    private TokenBucket opsBudget;
+    private TokenBucket bytesBudget;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            log.info("数据一致性扫描未启用");
+            return;
+        }
+        opsBudget = new TokenBucket(maxOpsPerSecond, Math.max(1, maxOpsPerSecond));
+        bytesBudget = new TokenBucket(maxDeleteBytesPerSecond, maxDeleteBytesPerSecond);
+        executor.execute(() -> {
+            try {
+                scan();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                state = "interrupted";
+            } catch (Exception e) {
+                state = "failed";
+                log.error("数据一致性扫描失败", e);
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", state);
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        status.put("sharesChecked", sharesChecked.get());
+        status.put("missingFiles", missingFiles.get());
+        status.put("sizeMismatches", sizeMismatches.get());
+        status.put("repairedPaths", repairedPaths.get());
+        status.put("orphansReclaimed", orphansReclaimed.get());
+        status.put("reclaimedBytes", reclaimedBytes.get());
+        return status;
+    }
+
+    void scan() throws Exception {
+        state = "running";
+        startedAt = clock.millis();
+        Checkpoint checkpoint = loadCheckpoint();
+        log.info("开始数据一致性扫描{}", checkpoint.getLastKey() != null
+                ? "，从检查点继续: " + checkpoint.getPhase() + "/" + checkpoint.getLastKey() : "");
+
+        // 元数据来自内存快照，文件清单需要访问存储，两者并行获取
+        CompletableFuture<List<BlobStore.Blob>> listing = CompletableFuture.supplyAsync(() -> {
+            try {
+                return blobStore.listExpired(clock.instant().minus(orphanGrace));
+            } catch (IOException e) {
+                throw new IllegalStateException("读取文件存储清单失败", e);
+            }
+        }, executor);
+        List<ShareContent> shares = shareRepository.listAll().stream()
+                .filter(share -> share.isFile() || !share.storedFiles().isEmpty())
+                .sorted((a, b) -> a.getShareId().compareTo(b.getShareId()))
+                .toList();
+        Set<String> referenced = new HashSet<>();
+        for (ShareContent share : shares) {
+            for (SharedFile file : share.storedFiles()) {
+                referenced.add(file.getFilePath());
+            }
+        }
+
+        Map<String, BlobStore.Blob> blobs = new HashMap<>();
+        for (BlobStore.Blob blob : listing.join()) {
+            blobs.put(blob.key(), blob);
+        }
+
+        if (PHASE_SHARES.equals(checkpoint.getPhase())) {
+            checkShares(shares, blobs, referenced, checkpoint);
+            checkpoint.setPhase(PHASE_ORPHANS);
+            checkpoint.setLastKey(null);
+            saveCheckpoint(checkpoint);
+        }
+        if (reclaimOrphans) {
+            reclaimOrphans(blobs, referenced, checkpoint);
+        }
+
+        Files.deleteIfExists(Paths.get(checkpointFile));
+        state = "completed";
+        finishedAt = clock.millis();
+        log.info("数据一致性扫描完成 - 检查: {}, 缺失: {}, 大小不一致: {}, 修复路径: {}, 回收孤儿文件: {} ({} 字节), 耗时: {} ms",
+                sharesChecked.get(), missingFiles.get(), sizeMismatches.get(), repairedPaths.get(),
+                orphansReclaimed.get(), reclaimedBytes.get(), finishedAt - startedAt);
+    }
+
+    private void checkShares(List<ShareContent> shares, Map<String, BlobStore.Blob> blobs, Set<String> referenced,
+                             Checkpoint checkpoint) throws IOException, InterruptedException {
+        // 缺少 filePath 的旧记录按大小匹配未被引用的文件，大小唯一时才认定
+        Map<Long, String> unreferencedBySize = new HashMap<>();
+        Set<Long> ambiguousSizes = new HashSet<>();
+        for (BlobStore.Blob blob : blobs.values()) {
+            if (!referenced.contains(blob.key()) && unreferencedBySize.put(blob.size(), blob.key()) != null) {
+                ambiguousSizes.add(blob.size());
+            }
+        }
+        ambiguousSizes.forEach(unreferencedBySize::remove);
+
+        int sinceCheckpoint = 0;
+        for (ShareContent share : shares) {
+            if (checkpoint.getLastKey() != null && share.getShareId().compareTo(checkpoint.getLastKey()) <= 0) {
+                continue;
+            }
+            checkShare(share, blobs, referenced, unreferencedBySize);
+            sharesChecked.incrementAndGet();
+
+            checkpoint.setLastKey(share.getShareId());
+            if (++sinceCheckpoint >= checkpointInterval) {
+                saveCheckpoint(checkpoint);
+                sinceCheckpoint = 0;
+            }
+        }
+    }
+
+    private void checkShare(ShareContent share, Map<String, BlobStore.Blob> blobs, Set<String> referenced,
+                            Map<Long, String> unreferencedBySize) throws IOException, InterruptedException {
+        if (share.isMultiFile()) {
+            checkMultiFileShare(share, blobs);
+            return;
+        }
+        String key = share.getFilePath();
+        if (key == null) {
+            String matched = unreferencedBySize.remove(share.getSize());
+            if (matched == null) {
+                log.warn("无法找到匹配的文件 - 分享ID: {}, 文件名: {}, 大小: {}",
+                        share.getShareId(), share.getFileName(), share.getSize());
+                return;
+            }
+            log.info("修复文件路径 - 分享ID: {}, 文件: {}", share.getShareId(), matched);
+            referenced.add(matched);
+            if (repair) {
+                share.setFilePath(matched);
+                shareRepository.save(share);
+                repairedPaths.incrementAndGet();
+            }
+            return;
+        }
+
+        OptionalLong size = actualSize(key, blobs);
+        if (size.isEmpty()) {
+            missingFiles.incrementAndGet();
+            log.warn("文件缺失 - 分享ID: {}, 文件: {}", share.getShareId(), key);
+            if (repair) {
+                // 配额按存储清单计入，缺失的文件从未计入，不需要释放
+                shareRepository.invalidate(share.getShareId());
+            }
+            return;
+        }
+        long actualSize = size.getAsLong();
+
+        if (actualSize != share.getSize()) {
+            // 文件被截断或损坏，继续提供下载只会得到错误的内容
+            sizeMismatches.incrementAndGet();
+            log.warn("文件大小不一致 - 分享ID: {}, 文件: {}, 记录: {}, 实际: {}",
+                    share.getShareId(), key, share.getSize(), actualSize);
+            if (repair) {
+                acquireOps();
+                acquireBytes(actualSize);
+                shareRepository.invalidate(share.getShareId());
+                // 只释放实际删除的字节数：配额按存储清单中的实际大小计入
+                fileStorageService.deleteFile(key);
+            }
+        }
+    }
+
+    // 多文件分享：任一文件缺失或大小不一致时整个分享失效，其余文件一并删除
+    private void checkMultiFileShare(ShareContent share, Map<String, BlobStore.Blob> blobs)
+            throws IOException, InterruptedException {
+        boolean broken = false;
+        for (SharedFile file : share.getFiles()) {
+            OptionalLong size = actualSize(file.getFilePath(), blobs);
+            if (size.isEmpty()) {
+                missingFiles.incrementAndGet();
+                log.warn("文件缺失 - 分享ID: {}, 文件: {}", share.getShareId(), file.getFilePath());
+                broken = true;
+            } else if (size.getAsLong() != file.getSize()) {
+                sizeMismatches.incrementAndGet();
+                log.warn("文件大小不一致 - 分享ID: {}, 文件: {}, 记录: {}, 实际: {}",
+                        share.getShareId(), file.getFilePath(), file.getSize(), size.getAsLong());
+                broken = true;
+            }
+        }
+        if (!broken || !repair) {
+            return;
+        }
+
+        shareRepository.invalidate(share.getShareId());
+        for (SharedFile file : share.getFiles()) {
+            acquireOps();
+            acquireBytes(file.getSize());
+            fileStorageService.deleteFile(file.getFilePath());
+        }
+    }
+
+    private OptionalLong actualSize(String key, Map<String, BlobStore.Blob> blobs) throws IOException,
+            InterruptedException {
+        BlobStore.Blob blob = blobs.get(key);
+        if (blob != null) {
+            return OptionalLong.of(blob.size());
+        }
+        // 不在清单中：刚上传的文件，单独查询一次
+        acquireOps();
+        return blobStore.size(key);
+    }
+
+    private void reclaimOrphans(Map<String, BlobStore.Blob> blobs, Set<String> referenced, Checkpoint checkpoint)
+            throws IOException, InterruptedException {
+        List<BlobStore.Blob> orphans = blobs.values().stream()
+                .filter(blob -> !referenced.contains(blob.key()))
+                .filter(blob -> checkpoint.getLastKey() == null || blob.key().compareTo(checkpoint.getLastKey()) > 0)
+                .sorted((a, b) -> a.key().compareTo(b.key()))
+                .toList();
+
+        int sinceCheckpoint = 0;
+        for (BlobStore.Blob orphan : orphans) {
+            if (repair) {
+                acquireOps();
+                acquireBytes(orphan.size());
+                // 启动时配额按存储清单计入，孤儿文件也在其中，删除时一并释放
+                long freed = fileStorageService.deleteFile(orphan.key());
+                if (freed > 0) {
+                    orphansReclaimed.incrementAndGet();
+                    reclaimedBytes.addAndGet(freed);
+                    log.debug("回收孤儿文件: {} ({} 字节)", orphan.key(), freed);
+                }
+            } else {
+                log.info("发现孤儿文件: {} ({} 字节)", orphan.key(), orphan.size());
+            }
+
+            checkpoint.setLastKey(orphan.key());
+            if (++sinceCheckpoint >= checkpointInterval) {
+                saveCheckpoint(checkpoint);
+                sinceCheckpoint = 0;
+            }
+        }
+    }
+
+    private void acquireOps() throws InterruptedException {
+        acquire(opsBudget, 1);
+    }
+
+    private void acquireBytes(long bytes) throws InterruptedException {
+        // 单次超过桶容量时按容量计，避免永远拿不到令牌
+        acquire(bytesBudget, Math.min(bytes, maxDeleteBytesPerSecond));
+    }
+
+    private void acquire(TokenBucket bucket, double permits) throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = bucket.tryAcquire(permits)) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private Checkpoint loadCheckpoint() {
+        Path path = Paths.get(checkpointFile);
+        if (Files.exists(path)) {
+            try {
+                Checkpoint checkpoint = objectMapper.readValue(path.toFile(), Checkpoint.class);
+                // 超过分享有效期的检查点已没有意义
+                if (clock.millis() - checkpoint.getStartedAt() < Duration.ofHours(24).toMillis()) {
+                    return checkpoint;
+                }
+            } catch (IOException e) {
+                log.warn("读取扫描检查点失败，重新开始扫描", e);
+            }
+        }
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.setStartedAt(clock.millis());
+        checkpoint.setPhase(PHASE_SHARES);
+        return checkpoint;
+    }
+
+    private void saveCheckpoint(Checkpoint checkpoint) {
+        Path path = Paths.get(checkpointFile);
+        try {
+            Path dir = path.toAbsolutePath().getParent();
+            if (dir != null) {
+                Files.createDirectories(dir);
+            }
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            objectMapper.writeValue(temp.toFile(), checkpoint);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("写入扫描检查点失败", e);
+        }
+    }
+
+    @Data
+    static class Checkpoint {
+        private long startedAt;
+        private String phase;
+        private String lastKey;
+    }
+}
@@ -0,0 +1,274 @@
+package cn.hellocsc.task;
+
+import cn.hellocsc.filter.TokenBucket;
+import cn.hellocsc.metrics.AppMetrics;
+import cn.hellocsc.service.FileStorageService;
+import cn.hellocsc.storage.BlobStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 过期文件后台回收
+ * 清理任务只负责列出过期文件并入队，由单个后台线程按文件数/字节数预算分批删除；
+ * 非下载请求的平均延迟升高或单次删除变慢时暂停回收并指数退避，避免删除大文件时的 I/O 峰值拖慢在线请求
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReclaimExecutor implements InitializingBean, DisposableBean {
+
+    private final FileStorageService fileStorageService;
+    private final AppMetrics metrics;
+    private final MeterRegistry registry;
+
+    @Value("${app.cleanup.max-files-per-second:50}")
+    private double maxFilesPerSecond;
+
+    @Value("${app.cleanup.max-bytes-per-second:268435456}")
+    private long maxBytesPerSecond;
+
+    @Value("${app.cleanup.batch-size:100}")
+    private int batchSize;
+
+    // 两批之间非下载请求的平均延迟超过该值时退避
+    @Value("${app.cleanup.backoff-latency:200ms}")
+    private Duration backoffLatency;
+
+    // 单个文件删除超过该值说明存储已经繁忙，同样退避
+    @Value("${app.cleanup.slow-delete:500ms}")
+    private Duration slowDelete;
+
+    @Value("${app.cleanup.min-backoff:1s}")
+    private Duration minBackoff;
+
+    @Value("${app.cleanup.max-backoff:60s}")
+    private Duration maxBackoff;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "reclaim-executor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 按 key 去重：上一轮尚未删除的文件会在下一轮扫描中再次出现
+    private final Map<String, BlobStore.Blob> pending = new LinkedHashMap<>();
+    private long pendingBytes;
+    private boolean busy;
+
+    private final AtomicLong reclaimedFiles = new AtomicLong();
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+    private final AtomicLong backoffs = new AtomicLong();
+    private volatile long backoffMillis;
+    private volatile double lastLatencyMillis;
+
+    private TokenBucket filesBudget;
+    private TokenBucket bytesBudget;
+    // 仅由回收线程访问
+    private long lastRequestCount;
+    private double lastRequestMillis;
+
+    @Override
+    public void afterPropertiesSet() {
+        filesBudget = new TokenBucket(maxFilesPerSecond, Math.max(1, maxFilesPerSecond));
+        bytesBudget = new TokenBucket(maxBytesPerSecond, maxBytesPerSecond);
+        executor.execute(this::run);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 过期文件入队，返回新加入的文件数
+     */
+    public synchronized int submit(Collection<BlobStore.Blob> blobs) {
+        int added = 0;
+        for (BlobStore.Blob blob : blobs) {
+            if (pending.putIfAbsent(blob.key(), blob) == null) {
+                pendingBytes += blob.size();
+                added++;
+            }
+        }
+        metrics.recordCleanupBacklog(pending.size(), pendingBytes);
+        if (added > 0) {
+            notifyAll();
+        }
+        return added;
+    }
+
+    /**
+     * 等待队列清空（浸泡测试在检查配额与孤儿文件前调用）
+     *
+     * @return 超时前清空返回 true
+     */
+    public synchronized boolean awaitIdle(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!pending.isEmpty() || busy) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("backlogFiles", pending.size());
+        status.put("backlogBytes", pendingBytes);
+        status.put("reclaimedFiles", reclaimedFiles.get());
+        status.put("reclaimedBytes", reclaimedBytes.get());
+        status.put("backoffs", backoffs.get());
+        status.put("backoffMillis", backoffMillis);
+        status.put("lastLatencyMillis", lastLatencyMillis);
+        status.put("maxFilesPerSecond", maxFilesPerSecond);
+        status.put("maxBytesPerSecond", maxBytesPerSecond);
+        return status;
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                reclaimBatch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                // 回收线程退出后队列不再消费，这里只记录并在短暂等待后继续；未删除的文件会在下一轮扫描中重新入队
+                log.error("过期文件回收批次失败，{} 后继续", minBackoff, e);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(minBackoff.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void reclaimBatch() throws InterruptedException {
+        List<BlobStore.Blob> batch = nextBatch();
+        boolean slow = false;
+        try {
+            // 以批次开始为基线，只统计本批删除期间完成的请求
+            recentRequestLatencyMillis();
+            for (BlobStore.Blob blob : batch) {
+                try {
+                    slow |= reclaim(blob);
+                } catch (RuntimeException e) {
+                    // 删除失败的文件会在下一轮扫描中重新入队
+                    log.warn("回收过期文件失败: {}", blob.key(), e);
+                }
+            }
+        } finally {
+            finishBatch(batch);
+        }
+        lastLatencyMillis = recentRequestLatencyMillis();
+        if (slow || lastLatencyMillis > backoffLatency.toMillis()) {
+            backOff();
+        } else {
+            backoffMillis = 0;
+        }
+    }
+
+    private synchronized List<BlobStore.Blob> nextBatch() throws InterruptedException {
+        while (pending.isEmpty()) {
+            wait();
+        }
+        List<BlobStore.Blob> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        Iterator<BlobStore.Blob> iterator = pending.values().iterator();
+        while (iterator.hasNext() && batch.size() < batchSize) {
+            batch.add(iterator.next());
+        }
+        busy = true;
+        return batch;
+    }
+
+    private synchronized void finishBatch(List<BlobStore.Blob> batch) {
+        for (BlobStore.Blob blob : batch) {
+            if (pending.remove(blob.key()) != null) {
+                pendingBytes -= blob.size();
+            }
+        }
+        busy = false;
+        notifyAll();
+        metrics.recordCleanupBacklog(pending.size(), pendingBytes);
+    }
+
+    /**
+     * 删除单个文件，返回删除是否超过 slow-delete
+     */
+    private boolean reclaim(BlobStore.Blob blob) throws InterruptedException {
+        acquire(filesBudget, 1);
+        // 单次超过桶容量时按容量计，避免永远拿不到令牌
+        acquire(bytesBudget, Math.min(blob.size(), maxBytesPerSecond));
+        long start = System.nanoTime();
+        // 同时释放配额并让小文件缓存、热点层失效；仍在下载的文件推迟到读取租约关闭时删除
+        long freed = fileStorageService.deleteWhenIdle(blob.key());
+        long elapsed = System.nanoTime() - start;
+        if (freed > 0) {
+            reclaimedFiles.incrementAndGet();
+            reclaimedBytes.addAndGet(freed);
+            metrics.recordFileReclaimed(freed);
+            log.debug("已回收过期文件: {} ({} 字节, {} ms)", blob.key(), freed, elapsed / 1_000_000);
+        }
+        return elapsed > slowDelete.toNanos();
+    }
+
+    private void backOff() throws InterruptedException {
+        long next = backoffMillis == 0 ? minBackoff.toMillis() : backoffMillis * 2;
+        backoffMillis = Math.min(next, maxBackoff.toMillis());
+        backoffs.incrementAndGet();
+        metrics.recordCleanupBackoff();
+        log.info("请求延迟升高或删除变慢（平均 {} ms），暂停回收 {} ms", String.format("%.1f", lastLatencyMillis),
+                backoffMillis);
+        TimeUnit.MILLISECONDS.sleep(backoffMillis);
+    }
+
+    /**
+     * 自上次调用以来非下载请求的平均延迟（毫秒），期间没有请求时返回 0
+     * 下载耗时取决于文件大小和客户端带宽，不反映存储压力，排除在外
+     */
+    private double recentRequestLatencyMillis() {
+        long count = 0;
+        double totalMillis = 0;
+        for (Timer timer : registry.find("http.server.requests").timers()) {
+            String uri = timer.getId().getTag("uri");
+            if (uri != null && uri.contains("/download")) {
+                continue;
+            }
+            count += timer.count();
+            totalMillis += timer.totalTime(TimeUnit.MILLISECONDS);
+        }
+        long requests = count - lastRequestCount;
+        double millis = totalMillis - lastRequestMillis;
+        lastRequestCount = count;
+        lastRequestMillis = totalMillis;
+        return requests > 0 ? millis / requests : 0;
+    }
+
+    private void acquire(TokenBucket bucket, double permits) throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = bucket.tryAcquire(permits)) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -315,6 +315,8 @@ function uploadFile() {
             try {
                 const response = JSON.parse(xhr.responseText);
                 uploadInProgress = false;
+                // 删除令牌只在创建时返回一次，保存在当前会话中供分享页使用
+                sessionStorage.setItem(`ownerToken:${response.shareId}`, response.ownerToken);
                 showNotification('文件分享创建成功！正在跳转...', 'success');
 
                 // 延迟跳转，优化体验
@@ -527,6 +529,7 @@ function shareText() {
             return response.json();
         })
         .then(data => {
+            sessionStorage.setItem(`ownerToken:${data.shareId}`, data.ownerToken);
             showNotification('文本分享创建成功！正在跳转...', 'success');
             setTimeout(() => {
                 window.location.href = `/share.html?id=${data.shareId}`;
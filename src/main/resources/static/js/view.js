@@ -17,7 +17,7 @@ function loadShareContent(shareId) {
     textContent.classList.add('d-none');
     fileContent.classList.add('d-none');
 
-    API.get(`/api/share?shareId=${shareId}`)
+    API.get(`/api/share?shareId=${shareId}&includeText=false`)
         .then(data => {
             shareData = data;
             renderShareContent(data);
@@ -75,6 +75,16 @@ function renderShareContent(data) {
         fileContent.classList.remove('d-none');
         textContent.classList.add('d-none');
         
+        // 多文件分享：列出其中的文件，可单独下载，下载按钮获取打包后的 ZIP
+        if (data.files && data.files.length > 0) {
+            renderFileList(data.shareId, data.files, fileContent);
+        }
+
+        // 预览图在上传后后台生成，生成完成前不显示
+        if (data.preview) {
+            renderPreview(data.shareId, data.preview, fileContent);
+        }
+
         // 生成下载命令
         generateDownloadCommands(data.shareId, data.fileName);
 
@@ -84,6 +94,25 @@ function renderShareContent(data) {
             downloadFile(data.shareId, data.fileName);
         });
     }
+    // 流式上传的大文本和压缩存储的文本：元数据中不含正文，单独获取原始内容（浏览器自动解压）后再渲染
+    else if (data.textContent == null) {
+        fetch(`/api/share/text/raw?shareId=${data.shareId}`)
+            .then(response => {
+                if (!response.ok) {
+                    throw new Error(`加载文本失败: HTTP ${response.status}`);
+                }
+                return response.text();
+            })
+            .then(text => {
+                data.textContent = text;
+                renderShareContent(data);
+            })
+            .catch(error => {
+                textContent.innerHTML = `<div class="alert alert-warning">${Utils.escapeHtml(error.message)}</div>`;
+                textContent.classList.remove('d-none');
+            });
+        return;
+    }
     // 文本分享
     else {
         // 渲染文本内容
@@ -148,6 +177,46 @@ function renderShareContent(data) {
     }
 }
 
+// 预览图：URL 带上预览的存储路径作为版本，浏览器可以长期缓存
+function renderPreview(shareId, preview, container) {
+    let img = document.getElementById('filePreview');
+    if (!img) {
+        img = document.createElement('img');
+        img.id = 'filePreview';
+        img.className = 'img-fluid rounded border mb-3 d-block mx-auto';
+        img.alt = '预览';
+        img.loading = 'lazy';
+        // 预览被清理或加载失败时直接隐藏
+        img.onerror = () => img.remove();
+        container.prepend(img);
+    }
+    img.src = `/api/share/preview?shareId=${encodeURIComponent(shareId)}&v=${encodeURIComponent(preview.filePath)}`;
+}
+
+// 多文件分享的文件列表
+function renderFileList(shareId, files, container) {
+    let list = document.getElementById('fileList');
+    if (!list) {
+        list = document.createElement('ul');
+        list.id = 'fileList';
+        list.className = 'list-group mb-3';
+        container.prepend(list);
+    }
+    list.replaceChildren();
+    files.forEach((file, index) => {
+        const item = document.createElement('li');
+        item.className = 'list-group-item d-flex justify-content-between align-items-center';
+        const link = document.createElement('a');
+        link.href = `/api/share/download?shareId=${encodeURIComponent(shareId)}&index=${index}`;
+        link.textContent = file.name;
+        const size = document.createElement('span');
+        size.className = 'text-muted small';
+        size.textContent = Utils.formatFileSize(file.size);
+        item.append(link, size);
+        list.append(item);
+    });
+}
+
 // 下载文件
 function downloadFile(shareId, fileName) {
     return new Promise((resolve, reject) => {
@@ -0,0 +1,58 @@
+package cn.hellocsc.config;
+
+import cn.hellocsc.model.ShareContent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JacksonConfigTest {
+
+    private final ObjectMapper apiMapper = apiMapper();
+
+    private static ObjectMapper apiMapper() {
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+        new JacksonConfig().shareContentApiCustomizer().customize(builder);
+        return builder.build();
+    }
+
+    @Test
+    void requestBodyCannotSetServerManagedFields() throws Exception {
+        ShareContent share = apiMapper.readValue("""
+                {"textContent":"x","size":2000,"charCount":5,"ownerTokenHash":"abc",
+                 "preview":{"filePath":"/etc/passwd","size":2000,"contentType":"text/html"}}
+                """, ShareContent.class);
+
+        assertThat(share.getTextContent()).isEqualTo("x");
+        assertThat(share.getPreview()).isNull();
+        assertThat(share.getSize()).isZero();
+        assertThat(share.getCharCount()).isZero();
+        assertThat(share.getOwnerTokenHash()).isNull();
+    }
+
+    @Test
+    void responseKeepsServerManagedFieldsButHidesSecrets() throws Exception {
+        ShareContent share = new ShareContent();
+        share.setSize(12);
+        share.setCharCount(3);
+        share.setOwnerTokenHash("abc");
+        share.setTextGzip(new byte[]{1, 2});
+
+        String json = apiMapper.writeValueAsString(share);
+
+        assertThat(json).contains("\"size\":12", "\"charCount\":3", "\"preview\":null");
+        assertThat(json).doesNotContain("ownerTokenHash", "textGzip");
+    }
+
+    @Test
+    void storageMapperStillPersistsHiddenFields() throws Exception {
+        ShareContent share = new ShareContent();
+        share.setOwnerTokenHash("abc");
+
+        ShareContent restored = new ObjectMapper().readValue(new ObjectMapper().writeValueAsString(share),
+                ShareContent.class);
+
+        assertThat(restored.getOwnerTokenHash()).isEqualTo("abc");
+    }
+}
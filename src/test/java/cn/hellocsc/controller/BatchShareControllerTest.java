@@ -0,0 +1,101 @@
+package cn.hellocsc.controller;
+
+import cn.hellocsc.config.ClockConfig;
+import cn.hellocsc.metrics.AppMetrics;
+import cn.hellocsc.metrics.SlowRequestLog;
+import cn.hellocsc.service.ShareService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(value = BatchShareController.class, properties = {
+        "app.admission.lookup.burst=10",
+        "app.admission.create.burst=10",
+        "app.admission.batch-items-per-token=10",
+        "app.batch.max-size=100",
+        "app.batch.max-bytes=4096"
+})
+@Import(ClockConfig.class)
+class BatchShareControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ShareService shareService;
+    @MockitoBean
+    private AppMetrics metrics;
+    @MockitoBean
+    private SlowRequestLog slowRequestLog;
+
+    @Test
+    void lookupIsChargedPerTenIds() throws Exception {
+        when(shareService.lookupShares(any())).thenReturn(Map.of());
+
+        lookup("10.0.0.1", 60).andExpect(status().isOk());
+        // 桶容量 10，前一次已用 6 个
+        lookup("10.0.0.1", 60)
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"));
+        lookup("10.0.0.2", 60).andExpect(status().isOk());
+    }
+
+    @Test
+    void fullBatchFitsInCreateBudget() throws Exception {
+        when(shareService.createTextShares(any())).thenReturn(List.of());
+        String body = IntStream.range(0, 100).mapToObj(i -> "{\"textContent\":\"t" + i + "\"}")
+                .collect(Collectors.joining(",", "[", "]"));
+
+        mockMvc.perform(post("/api/share/batch/text")
+                        .with(request -> {
+                            request.setRemoteAddr("10.0.0.4");
+                            return request;
+                        })
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void lookupLargerThanMaxSizeIsRejected() throws Exception {
+        lookup("10.0.0.3", 101).andExpect(status().isBadRequest());
+        verify(shareService, never()).lookupShares(any());
+    }
+
+    @Test
+    void oversizedBodyIsRejected() throws Exception {
+        String body = "[{\"textContent\":\"" + "x".repeat(8192) + "\"}]";
+
+        mockMvc.perform(post("/api/share/batch/text").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isPayloadTooLarge());
+        verify(shareService, never()).createTextShares(any());
+    }
+
+    private ResultActions lookup(String clientIp, int count) throws Exception {
+        String body = IntStream.range(0, count).mapToObj(i -> "\"" + (1000 + i) + "\"")
+                .collect(Collectors.joining(",", "[", "]"));
+        return mockMvc.perform(post("/api/share/batch/lookup")
+                .with(request -> {
+                    request.setRemoteAddr(clientIp);
+                    return request;
+                })
+                .contentType(MediaType.APPLICATION_JSON).content(body));
+    }
+}
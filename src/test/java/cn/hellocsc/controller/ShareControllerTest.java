@@ -0,0 +1,73 @@
+package cn.hellocsc.controller;
+
+import cn.hellocsc.config.ClockConfig;
+import cn.hellocsc.metrics.AppMetrics;
+import cn.hellocsc.metrics.SlowRequestLog;
+import cn.hellocsc.model.ShareContent;
+import cn.hellocsc.service.BandwidthScheduler;
+import cn.hellocsc.service.DownloadTicketService;
+import cn.hellocsc.service.ShareService;
+import cn.hellocsc.service.ZipArchiveStreamer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ShareController.class)
+@Import(ClockConfig.class)
+class ShareControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ShareService shareService;
+    @MockitoBean
+    private AppMetrics metrics;
+    @MockitoBean
+    private BandwidthScheduler bandwidthScheduler;
+    @MockitoBean
+    private ZipArchiveStreamer zipArchiveStreamer;
+    @MockitoBean
+    private DownloadTicketService downloadTicketService;
+    @MockitoBean
+    private SlowRequestLog slowRequestLog;
+
+    @Test
+    void rawTextIgnoresClientSuppliedContentType() throws Exception {
+        ShareContent share = textShare("<script>alert(1)</script>");
+        share.setContentType("text/html");
+        when(shareService.getTextShare("1234")).thenReturn(share);
+
+        mockMvc.perform(get("/api/share/text/raw").param("shareId", "1234"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/plain;charset=UTF-8"))
+                .andExpect(header().string("X-Content-Type-Options", "nosniff"))
+                .andExpect(content().string("<script>alert(1)</script>"));
+    }
+
+    @Test
+    void richTextIsServedAsMarkdown() throws Exception {
+        ShareContent share = textShare("# title");
+        share.setRichText(true);
+        when(shareService.getTextShare("1234")).thenReturn(share);
+
+        mockMvc.perform(get("/api/share/text/raw").param("shareId", "1234"))
+                .andExpect(content().contentType("text/markdown;charset=UTF-8"));
+    }
+
+    private static ShareContent textShare(String text) {
+        ShareContent share = new ShareContent();
+        share.setShareId("1234");
+        share.setTextContent(text);
+        return share;
+    }
+}
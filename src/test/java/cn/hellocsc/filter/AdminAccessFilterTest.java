@@ -0,0 +1,73 @@
+package cn.hellocsc.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdminAccessFilterTest {
+
+    private final AdminAccessFilter filter = new AdminAccessFilter(new ObjectMapper());
+
+    @Test
+    void withoutTokenOnlyLoopbackIsAllowed() throws Exception {
+        assertThat(status(request("127.0.0.1", null))).isEqualTo(200);
+        assertThat(status(request("::1", null))).isEqualTo(200);
+        assertThat(status(request("203.0.113.7", null))).isEqualTo(403);
+    }
+
+    @Test
+    void withTokenBearerIsRequiredEvenFromLoopback() throws Exception {
+        ReflectionTestUtils.setField(filter, "token", "s3cret");
+
+        assertThat(status(request("127.0.0.1", null))).isEqualTo(401);
+        assertThat(status(request("127.0.0.1", "Bearer wrong"))).isEqualTo(401);
+        assertThat(status(request("203.0.113.7", "Bearer s3cret"))).isEqualTo(200);
+    }
+
+    @Test
+    void otherPathsAreNotChecked() throws Exception {
+        MockHttpServletRequest request = request("203.0.113.7", null);
+        request.setRequestURI("/api/share/text");
+
+        assertThat(status(request)).isEqualTo(200);
+
+        request = request("203.0.113.7", null);
+        request.setRequestURI("/actuator/health");
+        assertThat(status(request)).isEqualTo(200);
+    }
+
+    @Test
+    void metricsEndpointsAreProtected() throws Exception {
+        ReflectionTestUtils.setField(filter, "token", "s3cret");
+
+        for (String uri : new String[]{"/actuator/prometheus", "/actuator/metrics", "/actuator/metrics/jvm.memory.used"}) {
+            MockHttpServletRequest request = request("203.0.113.7", null);
+            request.setRequestURI(uri);
+            assertThat(status(request)).isEqualTo(401);
+
+            request = request("203.0.113.7", "Bearer s3cret");
+            request.setRequestURI(uri);
+            assertThat(status(request)).isEqualTo(200);
+        }
+    }
+
+    private int status(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String authorization) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/admin/slow-requests");
+        request.setRemoteAddr(remoteAddr);
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        return request;
+    }
+}
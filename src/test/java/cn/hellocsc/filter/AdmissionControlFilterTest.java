@@ -0,0 +1,72 @@
+package cn.hellocsc.filter;
+
+import cn.hellocsc.exception.TooManyRequestsException;
+import cn.hellocsc.metrics.AppMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class AdmissionControlFilterTest {
+
+    private final AdmissionControlFilter filter = new AdmissionControlFilter(mock(AppMetrics.class), new ObjectMapper());
+
+    @Test
+    void ignoresForwardedForWithoutTrustedProxies() {
+        assertThat(filter.clientIp(request("10.0.0.9", "1.2.3.4"))).isEqualTo("10.0.0.9");
+    }
+
+    @Test
+    void usesEntryAppendedByTrustedProxy() {
+        ReflectionTestUtils.setField(filter, "trustedProxies", 1);
+
+        // 客户端伪造的前缀不影响结果
+        assertThat(filter.clientIp(request("10.0.0.9", "1.2.3.4, 203.0.113.7"))).isEqualTo("203.0.113.7");
+        assertThat(filter.clientIp(request("10.0.0.9", "5.6.7.8, 203.0.113.7"))).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    void countsHopsAcrossRepeatedHeaders() {
+        ReflectionTestUtils.setField(filter, "trustedProxies", 2);
+
+        assertThat(filter.clientIp(request("10.0.0.9", "1.2.3.4", "203.0.113.7, 198.51.100.2")))
+                .isEqualTo("203.0.113.7");
+        // 条目少于代理层数：请求绕过了外层代理
+        assertThat(filter.clientIp(request("10.0.0.9", "203.0.113.7"))).isEqualTo("10.0.0.9");
+    }
+
+    @Test
+    void batchIsChargedPerHundredItems() {
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "createRate", 0.001);
+        ReflectionTestUtils.setField(filter, "createBurst", 10.0);
+        ReflectionTestUtils.setField(filter, "batchItemsPerToken", 100);
+        // 默认值 0 会让 Caffeine 随时淘汰令牌桶
+        ReflectionTestUtils.setField(filter, "maxClients", 100L);
+        filter.initFilterBean();
+        MockHttpServletRequest request = request("10.0.0.9");
+
+        assertThat(filter.maxBatchItems(AdmissionControlFilter.CREATE)).isEqualTo(1000);
+        // 1000 条计 10 个令牌，按过滤器已扣 1 个只补扣 9 个；这里没有经过过滤器，桶里还剩 1 个
+        filter.charge(request, AdmissionControlFilter.CREATE, 1000);
+        assertThatThrownBy(() -> filter.charge(request, AdmissionControlFilter.CREATE, 201))
+                .isInstanceOf(TooManyRequestsException.class);
+        // 100 条以内不补扣
+        filter.charge(request, AdmissionControlFilter.CREATE, 100);
+        assertThatThrownBy(() -> filter.charge(request, AdmissionControlFilter.CREATE, 1001))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String... forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/share/text");
+        request.setRemoteAddr(remoteAddr);
+        for (String value : forwardedFor) {
+            request.addHeader("X-Forwarded-For", value);
+        }
+        return request;
+    }
+}
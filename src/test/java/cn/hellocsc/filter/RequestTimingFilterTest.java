@@ -0,0 +1,67 @@
+package cn.hellocsc.filter;
+
+import cn.hellocsc.metrics.RequestTrace;
+import cn.hellocsc.metrics.SlowRequestLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestTimingFilterTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final SlowRequestLog slowRequestLog = new SlowRequestLog(8);
+    private final RequestTimingFilter filter =
+            new RequestTimingFilter(slowRequestLog, Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @AfterEach
+    void disableTracing() {
+        RequestTrace.setEnabled(false);
+    }
+
+    @Test
+    void recordsRoutePatternWithoutParameters() throws Exception {
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "slowRequestThreshold", Duration.ZERO);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/share/download/t/secret-ticket");
+        request.setQueryString("shareId=1234");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/share/download/t/{ticket}");
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(slowRequestLog.recent()).singleElement().satisfies(entry -> {
+            assertThat(entry.route()).isEqualTo("/api/share/download/t/{ticket}");
+            assertThat(entry.time()).isEqualTo(NOW);
+        });
+    }
+
+    @Test
+    void transferTimeDoesNotMakeRequestSlow() throws Exception {
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "slowRequestThreshold", Duration.ofMillis(50));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/share/download");
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            res.getOutputStream().write(1);
+            try {
+                // 模拟传输大文件
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertThat(slowRequestLog.recent()).isEmpty();
+    }
+}
@@ -0,0 +1,108 @@
+package cn.hellocsc.service;
+
+import cn.hellocsc.exception.ShareIdUnavailableException;
+import cn.hellocsc.metrics.AppMetrics;
+import cn.hellocsc.model.ShareContent;
+import cn.hellocsc.storage.ShareRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShareServiceIdTest {
+
+    private final ShareRepository repository = mock(ShareRepository.class);
+    private final ShareService service = new ShareService(repository, null, null, null, mock(TextCompressor.class),
+            mock(AppMetrics.class), Clock.systemDefaultZone());
+
+    @Test
+    void fallsBackToLongerIdWhenShortIdsAreTaken() {
+        when(repository.saveIfAbsent(any())).thenAnswer(invocation ->
+                ((ShareContent) invocation.getArgument(0)).getShareId().length() == 6);
+        ShareContent share = new ShareContent();
+
+        service.insertShare(share);
+
+        assertThat(share.getShareId()).hasSize(6);
+    }
+
+    @Test
+    void refusesInsteadOfReusingTakenId() {
+        when(repository.saveIfAbsent(any())).thenReturn(false);
+
+        assertThatThrownBy(() -> service.insertShare(new ShareContent()))
+                .isInstanceOf(ShareIdUnavailableException.class);
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void idDependentFieldsFollowTheFinalId() {
+        AtomicInteger attempts = new AtomicInteger();
+        // 前两次写入与并发创建冲突
+        when(repository.saveIfAbsent(any())).thenAnswer(invocation -> attempts.incrementAndGet() > 2);
+        ShareContent share = new ShareContent();
+
+        service.insertShare(share, assigned -> assigned.setFileName("share-" + assigned.getShareId() + ".zip"));
+
+        assertThat(share.getFileName()).isEqualTo("share-" + share.getShareId() + ".zip");
+        verify(repository, times(3)).saveIfAbsent(share);
+    }
+
+    @Test
+    void batchConflictsAreRetriedWithNewIds() {
+        when(repository.getAll(any())).thenReturn(Map.of());
+        ShareContent first = new ShareContent();
+        first.setTextContent("a");
+        ShareContent second = new ShareContent();
+        second.setTextContent("b");
+        // 第二条与并发创建冲突
+        when(repository.saveAllIfAbsent(any())).thenReturn(List.of(second));
+        when(repository.saveIfAbsent(second)).thenReturn(true);
+        ReflectionTestUtils.setField(service, "maxTextBytes", 1024L);
+
+        service.createTextShares(List.of(first, second));
+
+        verify(repository).saveIfAbsent(second);
+        verify(repository, never()).save(any());
+        verify(repository, never()).saveAll(any());
+    }
+
+    @Test
+    void batchNeverReturnsTakenIds() {
+        // 所有 4 位 ID 都已占用
+        when(repository.getAll(any())).thenAnswer(invocation -> {
+            Collection<String> ids = invocation.getArgument(0);
+            return ids.stream().filter(id -> id.length() == 4)
+                    .collect(Collectors.toMap(Function.identity(), id -> new ShareContent()));
+        });
+
+        List<String> ids = service.generateShareIds(50);
+
+        assertThat(ids).hasSize(50).doesNotHaveDuplicates().allMatch(id -> id.length() == 6);
+    }
+
+    @Test
+    void batchRefusesWhenIdSpaceIsExhausted() {
+        when(repository.getAll(any())).thenAnswer(invocation -> {
+            Collection<String> ids = invocation.getArgument(0);
+            return ids.stream().collect(Collectors.toMap(Function.identity(), id -> new ShareContent()));
+        });
+
+        assertThatThrownBy(() -> service.generateShareIds(3)).isInstanceOf(ShareIdUnavailableException.class);
+    }
+}
@@ -0,0 +1,65 @@
+package cn.hellocsc.service;
+
+import cn.hellocsc.exception.ShareNotFoundException;
+import cn.hellocsc.metrics.AppMetrics;
+import cn.hellocsc.model.ShareContent;
+import cn.hellocsc.model.SharedFile;
+import cn.hellocsc.storage.MemoryTextStorage;
+import cn.hellocsc.storage.ShareRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShareServiceViewTest {
+
+    private final Clock clock = Clock.systemDefaultZone();
+
+    private ShareContent share(String shareId) {
+        ShareContent share = new ShareContent();
+        share.setShareId(shareId);
+        share.setTextContent("text");
+        share.setCreateTime(LocalDateTime.now(clock));
+        return share;
+    }
+
+    @Test
+    void viewCountKeepsFieldsWrittenMeanwhile() {
+        MemoryTextStorage storage = new MemoryTextStorage(mock(AppMetrics.class), clock);
+        storage.afterPropertiesSet();
+        ShareService service = new ShareService(storage, null, null, null, null, mock(AppMetrics.class), clock);
+        storage.save(share("1234"));
+
+        service.getShareContent("1234");
+        // 预览在后台写回后，查看计数不覆盖它
+        storage.computeIfPresent("1234", current -> {
+            current.setPreview(new SharedFile());
+            return current;
+        });
+        ShareContent viewed = service.getShareContent("1234");
+
+        assertThat(viewed.getViewCount()).isEqualTo(2);
+        assertThat(storage.get("1234")).get().extracting(ShareContent::getPreview).isNotNull();
+    }
+
+    @Test
+    void viewDoesNotResurrectDeletedShare() {
+        ShareRepository repository = mock(ShareRepository.class);
+        ShareService service = new ShareService(repository, null, null, null, null, mock(AppMetrics.class), clock);
+        when(repository.get("1234")).thenReturn(Optional.of(share("1234")));
+        // 读取之后、计数之前被所有者删除
+        when(repository.computeIfPresent(any(), any())).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.getShareContent("1234")).isInstanceOf(ShareNotFoundException.class);
+        verify(repository, never()).save(any());
+    }
+}
@@ -0,0 +1,35 @@
+package cn.hellocsc.service;
+
+import cn.hellocsc.storage.LocalBlobStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StorageQuotaServiceTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void seedsUsageFromFilesOnDisk() throws Exception {
+        // 有效文件、孤儿文件和中断上传的临时文件都占用磁盘
+        Files.write(root.resolve("shared.bin"), new byte[1000]);
+        Files.write(root.resolve("orphan.bin"), new byte[200]);
+        Files.write(root.resolve(".upload-123"), new byte[30]);
+        LocalBlobStore blobStore = new LocalBlobStore();
+        ReflectionTestUtils.setField(blobStore, "storagePath", root.toString());
+        StorageQuotaService quota = new StorageQuotaService(blobStore);
+        ReflectionTestUtils.setField(quota, "maxSize", 2000L);
+
+        quota.afterPropertiesSet();
+
+        assertThat(quota.getUsedBytes()).isEqualTo(1230);
+        assertThat(quota.tryReserve(800)).isFalse();
+        assertThat(quota.tryReserve(770)).isTrue();
+    }
+}
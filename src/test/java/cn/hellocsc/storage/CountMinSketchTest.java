@@ -0,0 +1,33 @@
+package cn.hellocsc.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountMinSketchTest {
+
+    @Test
+    void keysWithEqualHashCodeAreCountedSeparately() {
+        CountMinSketch sketch = new CountMinSketch(1024);
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+
+        for (int i = 0; i < 100; i++) {
+            sketch.add("Aa");
+        }
+
+        assertThat(sketch.estimate("Aa")).isEqualTo(100);
+        assertThat(sketch.estimate("BB")).isZero();
+    }
+
+    @Test
+    void halvingDecaysCounts() {
+        CountMinSketch sketch = new CountMinSketch(1024);
+        for (int i = 0; i < 10; i++) {
+            sketch.add("files/a.bin");
+        }
+
+        sketch.halve();
+
+        assertThat(sketch.estimate("files/a.bin")).isEqualTo(5);
+    }
+}
@@ -0,0 +1,63 @@
+package cn.hellocsc.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class HotFileTierTest {
+
+    private final HotFileTier tier = new HotFileTier();
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void shutdown() {
+        tier.destroy();
+    }
+
+    private void configure() {
+        ReflectionTestUtils.setField(tier, "enabled", true);
+        ReflectionTestUtils.setField(tier, "topK", 4);
+        ReflectionTestUtils.setField(tier, "minHits", 2L);
+        ReflectionTestUtils.setField(tier, "maxFileSize", 1L << 20);
+        ReflectionTestUtils.setField(tier, "maxBytes", 1L << 20);
+    }
+
+    @Test
+    void frequentFileIsPromotedForPrewarming() throws Exception {
+        configure();
+        Path file = Files.write(dir.resolve("a"), new byte[4096]);
+
+        tier.record("a", file);
+        tier.record("a", file);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> tier.getMappedBytes() == 4096);
+        assertThat(tier.record("a", file)).isTrue();
+    }
+
+    @Test
+    void invalidationDuringPromotionIsNotUndone() throws Exception {
+        configure();
+        Path file = Files.write(dir.resolve("b"), new byte[4096]);
+
+        tier.record("b", file);
+        tier.record("b", file);
+        tier.invalidate("b");
+
+        // 等待后台提升结束
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> ((Set<?>) ReflectionTestUtils.getField(tier, "pending")).isEmpty());
+        assertThat(tier.snapshot()).isEmpty();
+        assertThat(tier.getMappedBytes()).isZero();
+    }
+}
@@ -0,0 +1,54 @@
+package cn.hellocsc.storage;
+
+import cn.hellocsc.model.ShareContent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LegacyPathMigrationTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void rewritesPathsInsideRootAndInvalidatesOthers() {
+        LocalBlobStore store = new LocalBlobStore();
+        ReflectionTestUtils.setField(store, "storagePath", root.toString());
+        ShareRepository repository = mock(ShareRepository.class);
+
+        ShareContent inside = share("0001", root.resolve("a.bin").toString());
+        ShareContent outside = share("0002", "/etc/passwd");
+        ShareContent relative = share("0003", "b.bin");
+        when(repository.listAll()).thenReturn(List.of(inside, outside, relative));
+
+        new LegacyPathMigration(repository, store).afterPropertiesSet();
+
+        assertThat(inside.getFilePath()).isEqualTo("a.bin");
+        verify(repository).save(inside);
+        verify(repository).invalidate("0002");
+        verify(repository, never()).invalidate("0003");
+        verify(repository, never()).save(relative);
+        verify(repository, never()).save(outside);
+        verify(repository, never()).invalidate("0001");
+        verify(repository, times(1)).save(any());
+    }
+
+    private static ShareContent share(String id, String filePath) {
+        ShareContent share = new ShareContent();
+        share.setShareId(id);
+        share.setFile(true);
+        share.setFilePath(filePath);
+        return share;
+    }
+}
@@ -0,0 +1,55 @@
+package cn.hellocsc.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalBlobStoreTest {
+
+    @TempDir
+    Path workDir;
+
+    private Path root;
+    private LocalBlobStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        root = Files.createDirectories(workDir.resolve("files"));
+        store = new LocalBlobStore();
+        ReflectionTestUtils.setField(store, "storagePath", root.toString());
+    }
+
+    @Test
+    void readsAndWritesKeysInsideRoot() throws Exception {
+        store.put("a.bin", new ByteArrayInputStream(new byte[]{1, 2, 3}), 3, "application/octet-stream");
+
+        assertThat(store.size("a.bin")).hasValue(3);
+        assertThat(store.localPath("a.bin")).contains(root.resolve("a.bin").toAbsolutePath().normalize());
+    }
+
+    @Test
+    void rejectsKeysEscapingRoot() throws Exception {
+        Path secret = Files.writeString(workDir.resolve("secret.txt"), "secret");
+
+        assertThatThrownBy(() -> store.get("../secret.txt")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store.get(secret.toString())).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store.delete("x/../../secret.txt")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store.localPath(".")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(secret).exists();
+    }
+
+    @Test
+    void mapsLegacyAbsolutePathsInsideRootOnly() {
+        assertThat(store.relativeKey(root.resolve("old.bin").toString())).contains("old.bin");
+        assertThat(store.relativeKey(workDir.resolve("secret.txt").toString())).isEmpty();
+        assertThat(store.relativeKey(root.resolve("../secret.txt").toString())).isEmpty();
+    }
+}
@@ -0,0 +1,36 @@
+package cn.hellocsc.storage;
+
+import cn.hellocsc.metrics.AppMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class RedisShareRepositoryTest {
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+    private final BlobStore blobStore = mock(BlobStore.class);
+
+    @Test
+    void refusesToStartWithNodeLocalBlobStore() {
+        when(blobStore.localPath(anyString())).thenReturn(Optional.of(Path.of("files", "probe")));
+        RedisShareRepository repository = new RedisShareRepository(redisTemplate, connectionFactory, blobStore,
+                mock(AppMetrics.class), Clock.systemDefaultZone());
+
+        assertThatThrownBy(repository::afterPropertiesSet)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("storage.blob.backend=s3");
+        // 没有连接 Redis，也就不会使其他节点的记录失效
+        verifyNoInteractions(redisTemplate, connectionFactory);
+    }
+}
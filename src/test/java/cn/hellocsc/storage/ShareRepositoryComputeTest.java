@@ -0,0 +1,110 @@
+package cn.hellocsc.storage;
+
+import cn.hellocsc.metrics.AppMetrics;
+import cn.hellocsc.model.ShareContent;
+import cn.hellocsc.model.SharedFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ShareRepositoryComputeTest {
+
+    private final Clock clock = Clock.systemDefaultZone();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void memoryStorageDoesNotResurrectDeletedShare() {
+        MemoryTextStorage storage = new MemoryTextStorage(mock(AppMetrics.class), clock);
+        storage.afterPropertiesSet();
+
+        assertConditionalUpdate(storage);
+    }
+
+    @Test
+    void persistentStorageDoesNotResurrectDeletedShare() {
+        PersistentTextStorage storage = new PersistentTextStorage(mock(AppMetrics.class), clock);
+        ReflectionTestUtils.setField(storage, "metadataFilePath", dir.resolve("shares.json").toString());
+        storage.afterPropertiesSet();
+        try {
+            assertConditionalUpdate(storage);
+        } finally {
+            storage.destroy();
+        }
+    }
+
+    @Test
+    void memoryStorageDoesNotOverwriteTakenId() {
+        MemoryTextStorage storage = new MemoryTextStorage(mock(AppMetrics.class), clock);
+        storage.afterPropertiesSet();
+
+        assertInsertIfAbsent(storage);
+    }
+
+    @Test
+    void persistentStorageDoesNotOverwriteTakenId() {
+        PersistentTextStorage storage = new PersistentTextStorage(mock(AppMetrics.class), clock);
+        ReflectionTestUtils.setField(storage, "metadataFilePath", dir.resolve("shares.json").toString());
+        storage.afterPropertiesSet();
+        try {
+            assertInsertIfAbsent(storage);
+
+            // 已过期但尚未清理的记录不占用分享码
+            ShareContent expired = share("5678");
+            expired.setCreateTime(LocalDateTime.now(clock).minusDays(2));
+            storage.save(expired);
+            assertThat(storage.saveIfAbsent(share("5678"))).isTrue();
+            assertThat(storage.get("5678")).isPresent();
+        } finally {
+            storage.destroy();
+        }
+    }
+
+    private void assertInsertIfAbsent(ShareRepository repository) {
+        ShareContent first = share("1234");
+        first.setTextContent("first");
+        ShareContent second = share("1234");
+        second.setTextContent("second");
+        ShareContent other = share("4321");
+
+        assertThat(repository.saveIfAbsent(first)).isTrue();
+        assertThat(repository.saveIfAbsent(second)).isFalse();
+        assertThat(repository.saveAllIfAbsent(List.of(second, other))).containsExactly(second);
+        assertThat(repository.get("1234")).get().extracting(ShareContent::getTextContent).isEqualTo("first");
+        assertThat(repository.get("4321")).isPresent();
+    }
+
+    private void assertConditionalUpdate(ShareRepository repository) {
+        repository.save(share("1234"));
+
+        assertThat(repository.computeIfPresent("1234", share -> {
+            share.setPreview(new SharedFile());
+            return share;
+        })).isPresent();
+        assertThat(repository.get("1234")).get().extracting(ShareContent::getPreview).isNotNull();
+
+        // 放弃修改时保留原记录
+        assertThat(repository.computeIfPresent("1234", share -> null)).isEmpty();
+        assertThat(repository.get("1234")).isPresent();
+
+        repository.delete("1234");
+        assertThat(repository.computeIfPresent("1234", share -> share)).isEmpty();
+        assertThat(repository.get("1234")).isEmpty();
+    }
+
+    private ShareContent share(String shareId) {
+        ShareContent share = new ShareContent();
+        share.setShareId(shareId);
+        share.setCreateTime(LocalDateTime.now(clock));
+        return share;
+    }
+}
@@ -0,0 +1,97 @@
+package cn.hellocsc.task;
+
+import cn.hellocsc.filter.TokenBucket;
+import cn.hellocsc.model.ShareContent;
+import cn.hellocsc.service.FileStorageService;
+import cn.hellocsc.service.StorageQuotaService;
+import cn.hellocsc.storage.HotFileTier;
+import cn.hellocsc.storage.LocalBlobStore;
+import cn.hellocsc.storage.ShareRepository;
+import cn.hellocsc.storage.SmallFileCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IntegrityScannerTest {
+
+    @TempDir
+    Path root;
+
+    @TempDir
+    Path dataDir;
+
+    private IntegrityScanner scanner;
+
+    @AfterEach
+    void shutdown() {
+        scanner.destroy();
+    }
+
+    private static ShareContent fileShare(String shareId, String key, long size) {
+        ShareContent share = new ShareContent();
+        share.setShareId(shareId);
+        share.setFile(true);
+        share.setFilePath(key);
+        share.setSize(size);
+        return share;
+    }
+
+    private void write(String key, int size) throws Exception {
+        Path file = Files.write(root.resolve(key), new byte[size]);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofDays(1))));
+    }
+
+    @Test
+    void quotaOnlyReleasesBytesActuallyDeleted() throws Exception {
+        write("shared.bin", 1000);
+        // 记录为 1000 字节，实际被截断为 400 字节
+        write("truncated.bin", 400);
+        write("orphan.bin", 200);
+        LocalBlobStore blobStore = new LocalBlobStore();
+        ReflectionTestUtils.setField(blobStore, "storagePath", root.toString());
+        StorageQuotaService quota = new StorageQuotaService(blobStore);
+        ReflectionTestUtils.setField(quota, "maxSize", 10_000L);
+        quota.afterPropertiesSet();
+        assertThat(quota.getUsedBytes()).isEqualTo(1600);
+
+        ShareRepository repository = mock(ShareRepository.class);
+        when(repository.listAll()).thenReturn(List.of(
+                fileShare("0001", "shared.bin", 1000),
+                fileShare("0002", "truncated.bin", 1000),
+                fileShare("0003", "missing.bin", 500)));
+        FileStorageService fileStorageService = new FileStorageService(blobStore, quota, mock(SmallFileCache.class),
+                mock(HotFileTier.class), Clock.systemDefaultZone());
+        scanner = new IntegrityScanner(repository, blobStore, fileStorageService, Clock.systemDefaultZone());
+        ReflectionTestUtils.setField(scanner, "repair", true);
+        ReflectionTestUtils.setField(scanner, "reclaimOrphans", true);
+        ReflectionTestUtils.setField(scanner, "orphanGrace", Duration.ofHours(1));
+        ReflectionTestUtils.setField(scanner, "maxDeleteBytesPerSecond", 1e9);
+        ReflectionTestUtils.setField(scanner, "checkpointInterval", 200);
+        ReflectionTestUtils.setField(scanner, "checkpointFile", dataDir.resolve("scan.json").toString());
+        ReflectionTestUtils.setField(scanner, "opsBudget", new TokenBucket(1000, 1000));
+        ReflectionTestUtils.setField(scanner, "bytesBudget", new TokenBucket(1e9, 1e9));
+
+        scanner.scan();
+
+        verify(repository).invalidate("0002");
+        verify(repository).invalidate("0003");
+        assertThat(root.resolve("truncated.bin")).doesNotExist();
+        assertThat(root.resolve("orphan.bin")).doesNotExist();
+        // 只剩仍被引用的文件
+        assertThat(quota.getUsedBytes()).isEqualTo(1000);
+    }
+}
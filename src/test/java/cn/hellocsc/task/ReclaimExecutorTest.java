@@ -0,0 +1,80 @@
+package cn.hellocsc.task;
+
+import cn.hellocsc.metrics.AppMetrics;
+import cn.hellocsc.service.FileStorageService;
+import cn.hellocsc.storage.BlobStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReclaimExecutorTest {
+
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+    private final SimpleMeterRegistry registry = spy(new SimpleMeterRegistry());
+    private final ReclaimExecutor executor = new ReclaimExecutor(fileStorageService, mock(AppMetrics.class), registry);
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(executor, "maxFilesPerSecond", 1000.0);
+        ReflectionTestUtils.setField(executor, "maxBytesPerSecond", 1L << 30);
+        ReflectionTestUtils.setField(executor, "batchSize", 10);
+        ReflectionTestUtils.setField(executor, "backoffLatency", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(executor, "slowDelete", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(executor, "minBackoff", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(executor, "maxBackoff", Duration.ofMillis(100));
+    }
+
+    @AfterEach
+    void shutdown() {
+        executor.destroy();
+    }
+
+    private static BlobStore.Blob blob(String key) {
+        return new BlobStore.Blob(key, 100, Instant.EPOCH);
+    }
+
+    @Test
+    void deletesThroughReadLeases() throws Exception {
+        when(fileStorageService.deleteWhenIdle(anyString())).thenReturn(100L);
+        executor.afterPropertiesSet();
+
+        executor.submit(List.of(blob("a"), blob("b")));
+
+        assertThat(executor.awaitIdle(Duration.ofSeconds(5))).isTrue();
+        verify(fileStorageService).deleteWhenIdle("a");
+        verify(fileStorageService).deleteWhenIdle("b");
+        verify(fileStorageService, never()).deleteFile(anyString());
+        assertThat(executor.status()).containsEntry("reclaimedFiles", 2L);
+    }
+
+    @Test
+    void failedBatchDoesNotStopTheReclaimThread() throws Exception {
+        doThrow(new IllegalStateException("metrics unavailable"))
+                .doCallRealMethod()
+                .when(registry).find("http.server.requests");
+        executor.afterPropertiesSet();
+
+        executor.submit(List.of(blob("a")));
+        assertThat(executor.awaitIdle(Duration.ofSeconds(5))).isTrue();
+        executor.submit(List.of(blob("b")));
+
+        assertThat(executor.awaitIdle(Duration.ofSeconds(5))).isTrue();
+        verify(fileStorageService, never()).deleteWhenIdle("a");
+        verify(fileStorageService).deleteWhenIdle("b");
+    }
+}